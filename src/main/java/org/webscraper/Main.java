@@ -1,39 +1,131 @@
 package org.webscraper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.api.QueryServer;
 import org.webscraper.api.RestaurantScraper;
+import org.webscraper.client.AdaptiveConcurrencyLimiter;
 import org.webscraper.client.Client;
 import org.webscraper.client.GrabApiClient;
+import org.webscraper.client.RateLimiter;
+import org.webscraper.client.TokenBucket;
 import org.webscraper.exceptions.ScrapingException;
+import org.webscraper.model.BoundingBox;
+import org.webscraper.model.GeoTile;
 import org.webscraper.model.Payload;
-import org.webscraper.model.Restaurant;
+import org.webscraper.model.RestaurantChange;
+import org.webscraper.service.CoverageTracker;
+import org.webscraper.service.ExecutorStrategy;
+import org.webscraper.service.GeoTilingPlanner;
 import org.webscraper.service.MultiLocationScrapingService;
-import org.webscraper.utils.FileUtil;
+import org.webscraper.service.RescrapeScheduler;
+import org.webscraper.store.ChangeDetector;
+import org.webscraper.store.FeeTimeSeriesStore;
+import org.webscraper.store.MappedRestaurantStore;
+import org.webscraper.store.SnapshotStore;
+import org.webscraper.store.SweepJournal;
+import org.webscraper.utils.ParallelGzipNdjsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
+    private static final Logger logger = LoggerFactory.getLogger(Main.class);
+    private static final double REQUESTS_PER_SECOND = 5.0;
+    private static final int REQUEST_BURST = 5;
+    private static final int MAX_PAGES_IN_FLIGHT = 500;
+    private static final int INITIAL_CONCURRENCY = 10;
+    private static final int MAX_CONCURRENCY = 256;
+    private static final Duration SWEEP_TIMEOUT = Duration.ofHours(2);
+    private static final Duration LOCATION_TIMEOUT = Duration.ofMinutes(2);
+    private static final BoundingBox SINGAPORE = new BoundingBox(1.205, 103.605, 1.475, 104.045);
+    private static final double INITIAL_TILE_KM = 5.0;
+    private static final double MIN_TILE_KM = 0.5;
+    private static final double COVERAGE_RADIUS_FACTOR = 0.9;
+    private static final String OUTPUT_FILE = "restaurant-changes.ndjson.gz";
+    private static final Path SNAPSHOT_FILE = Path.of("restaurants.snapshot");
+    private static final Path FEE_TIME_HISTORY_DIR = Path.of("fee-time-history");
+    private static final Path LOOKUP_FILE = Path.of("restaurants.lookup");
+    private static final Path JOURNAL_DIR = Path.of("sweep-journal");
+    private static final int QUERY_PORT = 8080;
+    private static final double RESCRAPE_PAGES_PER_SECOND = 1.0;
+    private static final Duration MIN_RESCRAPE_INTERVAL = Duration.ofMinutes(3);
+    private static final Duration MAX_RESCRAPE_INTERVAL = Duration.ofHours(1);
+    private static final int COMPRESSION_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
     public static void main(String[] args) {
-        List<Payload> payloads = Arrays.asList(
-                new Payload("1.396364,103.747462", "", 0, 32, "SG"), // Choa Chu Kang
-                new Payload("1.367476,103.858326", "", 0, 32, "SG")  // Ang Mo Kio
-        );
+        GeoTilingPlanner planner = new GeoTilingPlanner(INITIAL_TILE_KM, MIN_TILE_KM, "SG");
+        List<GeoTile> tiles = planner.initialGrid(SINGAPORE);
 
-        OkHttpClient httpClient = new OkHttpClient();
+        // Pages are fetched asynchronously, so widen OkHttp's default of 5 concurrent calls per host
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONCURRENCY);
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENCY);
+        OkHttpClient httpClient = new OkHttpClient.Builder().dispatcher(dispatcher).build();
         ObjectMapper objectMapper = new ObjectMapper();
-        Client client = new GrabApiClient(httpClient, objectMapper);
+        RateLimiter rateLimiter = new RateLimiter(REQUESTS_PER_SECOND, REQUEST_BURST);
+        // Requests in flight grow while the API keeps up and are halved on 429/5xx responses or latency spikes
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(INITIAL_CONCURRENCY, 1, MAX_CONCURRENCY);
+        // Page requests still unanswered after the observed p95 latency are sent again, and the first answer wins
+        Client client = new GrabApiClient(httpClient, objectMapper, rateLimiter, concurrencyLimiter).withHedging();
 
-        MultiLocationScrapingService multiLocationScrapingService = new MultiLocationScrapingService(client, objectMapper);
-        RestaurantScraper restaurantScraper = new RestaurantScraper(multiLocationScrapingService, new HashMap<>());
+        // Completed pages are journaled, so rerunning after a crash replays them instead of spending requests again
+        SweepJournal journal;
+        try {
+            journal = SweepJournal.open(JOURNAL_DIR);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the sweep journal in " + JOURNAL_DIR, e);
+        }
+        MultiLocationScrapingService multiLocationScrapingService = new MultiLocationScrapingService(
+                client, objectMapper, ExecutorStrategy.workStealing(Runtime.getRuntime().availableProcessors()), MAX_PAGES_IN_FLIGHT, journal);
+        // A slow location or sweep is cut off with the pages it has, and the journal resumes it on the next run
+        multiLocationScrapingService.setTimeouts(SWEEP_TIMEOUT, LOCATION_TIMEOUT);
+        RestaurantScraper restaurantScraper = new RestaurantScraper(multiLocationScrapingService);
+        boolean serve = Arrays.asList(args).contains("--serve");
+        if (serve) {
+            restaurantScraper.withQueryIndex(); // Only a served sweep pays for the query index
+        }
 
         multiLocationScrapingService.startService(); // Start the scraping service
-        Set<Restaurant> restaurants = new HashSet<>();
 
-        try {
-            restaurants = restaurantScraper.scrapeLocations(payloads);
+        // Only restaurants inserted, updated or removed since the previous run are written. Changes are written as
+        // their pages are decoded and compressed in independent blocks on several cores;
+        // restaurant-changes.ndjson.gz.idx maps every restaurantId to the block holding it
+        try (ParallelGzipNdjsonWriter<RestaurantChange> writer =
+                     new ParallelGzipNdjsonWriter<>(OUTPUT_FILE, RestaurantChange::restaurantId, COMPRESSION_THREADS);
+             // Other processes map restaurants.lookup to look up fee, time, rating and position without parsing
+             MappedRestaurantStore.Writer lookupWriter = MappedRestaurantStore.writer(LOOKUP_FILE)) {
+            ChangeDetector changeDetector = new ChangeDetector(SnapshotStore.load(SNAPSHOT_FILE), writer);
+            // History is appended whenever its buffer fills up, and the last partial buffer is flushed after the sweep
+            FeeTimeSeriesStore feeTimeHistory = new FeeTimeSeriesStore(FEE_TIME_HISTORY_DIR);
+            restaurantScraper.scrapeRegion(tiles, planner, new CoverageTracker(MIN_TILE_KM, COVERAGE_RADIUS_FACTOR),
+                    changeDetector.andThen(feeTimeHistory.recorder()).andThen(lookupWriter));
+            logger.info("Concurrency: {}, {} hedged requests", concurrencyLimiter.summary(), client.getHedgesSent());
+            boolean complete = restaurantScraper.getLastRunFailedLocations() == 0;
+            changeDetector.finish(complete).save(SNAPSHOT_FILE);
+            feeTimeHistory.flush();
+            feeTimeHistory.compact(LocalDate.now(ZoneOffset.UTC).minusDays(1));
+            if (complete) {
+                // An incomplete run would publish a lookup file missing every restaurant it could not reach
+                lookupWriter.commit();
+                journal.clear(); // Otherwise the next run retries only the failed locations
+            }
         } catch (ScrapingException | InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Failed during scraping operations", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + OUTPUT_FILE, e);
         } finally {
             try {
                 multiLocationScrapingService.stopService(); // Ensure to stop the service even if an exception occurs
@@ -43,6 +135,56 @@ public class Main {
             }
         }
 
-        FileUtil.saveDataAsGzipNdjson(restaurants, "restaurants.ndjson.gz");
+        // With --serve the JVM stays up after the sweep and answers queries over its results
+        if (serve) {
+            try {
+                new QueryServer(QUERY_PORT, restaurantScraper::getQueryIndex, objectMapper).start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start the query server on port " + QUERY_PORT, e);
+            }
+        }
+
+        // With --continuous the JVM keeps re-scraping the tiles the sweep settled on, down to the split ones in dense
+        // areas, each as often as its restaurants change
+        if (Arrays.asList(args).contains("--continuous")) {
+            rescrapeContinuously(client, objectMapper, restaurantScraper.getLastRunLeafTiles().stream().map(planner::toPayload).toList());
+        }
+    }
+
+    /**
+     * Re-scrapes the locations forever within the re-scrape budget, appending every result to the fee/time history.
+     * The sweep journal is not used here, since it only describes the one-shot sweep.
+     */
+    private static void rescrapeContinuously(Client client, ObjectMapper objectMapper, List<Payload> payloads) {
+        MultiLocationScrapingService rescrapeService = new MultiLocationScrapingService(
+                client, objectMapper, ExecutorStrategy.workStealing(Runtime.getRuntime().availableProcessors()), MAX_PAGES_IN_FLIGHT);
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+        try {
+            FeeTimeSeriesStore feeTimeHistory = new FeeTimeSeriesStore(FEE_TIME_HISTORY_DIR);
+            flusher.scheduleAtFixedRate(() -> {
+                try {
+                    feeTimeHistory.flush();
+                } catch (IOException e) {
+                    System.err.println("Failed to flush the fee/time history: " + e.getMessage());
+                }
+            }, 1, 1, TimeUnit.MINUTES);
+            RescrapeScheduler scheduler = new RescrapeScheduler(rescrapeService,
+                    new TokenBucket(RESCRAPE_PAGES_PER_SECOND, REQUEST_BURST), MIN_RESCRAPE_INTERVAL, MAX_RESCRAPE_INTERVAL,
+                    feeTimeHistory.recorder());
+            scheduler.schedule(payloads);
+            rescrapeService.startService();
+            scheduler.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the fee/time history in " + FEE_TIME_HISTORY_DIR, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flusher.shutdownNow();
+            try {
+                rescrapeService.stopService();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
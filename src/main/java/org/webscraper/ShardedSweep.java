@@ -0,0 +1,136 @@
+package org.webscraper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.webscraper.api.RestaurantScraper;
+import org.webscraper.api.ShardWorker;
+import org.webscraper.client.AdaptiveConcurrencyLimiter;
+import org.webscraper.client.Client;
+import org.webscraper.client.GrabApiClient;
+import org.webscraper.client.RateLimiter;
+import org.webscraper.model.BoundingBox;
+import org.webscraper.model.GeoTile;
+import org.webscraper.service.CoverageTracker;
+import org.webscraper.service.ExecutorStrategy;
+import org.webscraper.service.GeoTilingPlanner;
+import org.webscraper.service.MultiLocationScrapingService;
+import org.webscraper.store.LeaseQueue;
+import org.webscraper.store.ShardMerger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Entry point of a sweep sharded across several worker processes sharing a queue directory:
+ * <pre>
+ * ShardedSweep enqueue &lt;queueDir&gt; [batchSize]   split the region into batches of initial tiles
+ * ShardedSweep work &lt;queueDir&gt; [workerId]      run a worker until the queue is drained, once per JVM or host
+ * ShardedSweep merge &lt;queueDir&gt; [outputFile]   deduplicate the workers' outputs into one NDJSON.gz file
+ * </pre>
+ * Workers split every tile of their batch that hits the result cap, so the sharded sweep finds as many
+ * restaurants as the single-process one. Every worker has its own rate limiter, so workers on different hosts
+ * spread the sweep across egress IPs.
+ */
+public class ShardedSweep {
+    private static final double REQUESTS_PER_SECOND = 5.0;
+    private static final int REQUEST_BURST = 5;
+    private static final int MAX_PAGES_IN_FLIGHT = 500;
+    private static final int INITIAL_CONCURRENCY = 10;
+    private static final int MAX_CONCURRENCY = 256;
+    private static final BoundingBox SINGAPORE = new BoundingBox(1.205, 103.605, 1.475, 104.045);
+    private static final double INITIAL_TILE_KM = 5.0;
+    private static final double MIN_TILE_KM = 0.5;
+    private static final double COVERAGE_RADIUS_FACTOR = 0.9;
+    private static final int DEFAULT_BATCH_SIZE = 8;
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(5);
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofMinutes(1);
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(10);
+    private static final String DEFAULT_OUTPUT_FILE = "restaurants.ndjson.gz";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardedSweep enqueue|work|merge <queueDir> [batchSize|workerId|outputFile]");
+            System.exit(2);
+        }
+        try {
+            LeaseQueue queue = new LeaseQueue(Path.of(args[1]), LEASE_DURATION);
+            switch (args[0]) {
+                case "enqueue" -> enqueue(queue, args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BATCH_SIZE);
+                case "work" -> work(queue, args.length > 2 ? args[2] : defaultWorkerId());
+                case "merge" -> merge(queue, args.length > 2 ? args[2] : DEFAULT_OUTPUT_FILE);
+                default -> {
+                    System.err.println("Unknown command: " + args[0]);
+                    System.exit(2);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sharded sweep failed on queue " + args[1], e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Worker interrupted", e);
+        }
+    }
+
+    private static void enqueue(LeaseQueue queue, int batchSize) throws IOException {
+        List<GeoTile> tiles = planner().initialGrid(SINGAPORE);
+        int batches = 0;
+        for (int start = 0; start < tiles.size(); start += batchSize) {
+            queue.enqueue(String.format("batch-%05d", batches++), tiles.subList(start, Math.min(start + batchSize, tiles.size())));
+        }
+        System.out.println(tiles.size() + " tiles enqueued in " + batches + " batches");
+    }
+
+    private static void work(LeaseQueue queue, String workerId) throws IOException, InterruptedException {
+        // Pages are fetched asynchronously, so widen OkHttp's default of 5 concurrent calls per host
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONCURRENCY);
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENCY);
+        OkHttpClient httpClient = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Client client = new GrabApiClient(httpClient, objectMapper, new RateLimiter(REQUESTS_PER_SECOND, REQUEST_BURST),
+                new AdaptiveConcurrencyLimiter(INITIAL_CONCURRENCY, 1, MAX_CONCURRENCY));
+        MultiLocationScrapingService multiLocationScrapingService = new MultiLocationScrapingService(
+                client, objectMapper, ExecutorStrategy.workStealing(Runtime.getRuntime().availableProcessors()), MAX_PAGES_IN_FLIGHT);
+        multiLocationScrapingService.startService();
+        try {
+            new ShardWorker(queue, new RestaurantScraper(multiLocationScrapingService), planner(),
+                    () -> new CoverageTracker(MIN_TILE_KM, COVERAGE_RADIUS_FACTOR), workerId, HEARTBEAT_INTERVAL, POLL_INTERVAL).run();
+        } finally {
+            multiLocationScrapingService.stopService();
+            httpClient.dispatcher().executorService().shutdown();
+        }
+    }
+
+    private static void merge(LeaseQueue queue, String outputFile) throws IOException {
+        int[] counts = queue.counts();
+        if (!queue.isDrained()) {
+            System.err.println("Warning: the queue is not drained (" + counts[0] + " pending, " + counts[1]
+                    + " leased); the merged output will miss their restaurants");
+        }
+        if (counts[3] > 0) {
+            System.err.println("Warning: " + counts[3] + " batches failed " + LeaseQueue.MAX_ATTEMPTS
+                    + " times and are missing from the merged output; see " + queue.failedDirectory());
+        }
+        ShardMerger.merge(queue.outputDirectory(), outputFile);
+    }
+
+    private static GeoTilingPlanner planner() {
+        return new GeoTilingPlanner(INITIAL_TILE_KM, MIN_TILE_KM, "SG");
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        // Host plus pid keeps several JVMs on one box apart
+        return (host + "-" + ProcessHandle.current().pid()).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
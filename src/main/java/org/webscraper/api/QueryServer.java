@@ -0,0 +1,140 @@
+package org.webscraper.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.index.RestaurantQuery;
+import org.webscraper.index.RestaurantQueryIndex;
+import org.webscraper.model.RestaurantColumnStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Embedded HTTP service answering queries over the latest scrape from in-memory indexes, on the JDK's built-in
+ * {@link HttpServer}. Every request reads the current {@link RestaurantQueryIndex} snapshot, so a scrape that
+ * finishes mid-query never changes the results of a request already running.
+ * <p>
+ * {@code GET /restaurants?cuisine=&promo=&minRating=&maxFee=&sort=fee|eta|rating&limit=} streams the top matches as
+ * NDJSON, one restaurant per line.
+ */
+public class QueryServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(QueryServer.class);
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 10_000;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Supplier<RestaurantQueryIndex> indexSupplier;
+    private final ObjectMapper mapper;
+
+    /**
+     * Binds a server to a port. Call {@link #start()} to begin serving.
+     *
+     * @param port          the port to listen on, or 0 for any free port
+     * @param indexSupplier supplies the latest index snapshot for each request
+     * @param mapper        the mapper used to write results
+     * @throws IOException if the port cannot be bound
+     */
+    public QueryServer(int port, Supplier<RestaurantQueryIndex> indexSupplier, ObjectMapper mapper) throws IOException {
+        this.indexSupplier = indexSupplier;
+        this.mapper = mapper;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/restaurants", this::handleQuery);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Query server listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            RestaurantQuery query;
+            try {
+                query = parseQuery(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            RestaurantQueryIndex index = indexSupplier.get();
+            int[] rows = index.query(query);
+            RestaurantColumnStore store = index.store();
+
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0); // chunked: rows are written as they are serialized
+            try (OutputStream body = exchange.getResponseBody();
+                 JsonGenerator generator = mapper.getFactory().createGenerator(body)) {
+                generator.setRootValueSeparator(null);
+                for (int row : rows) {
+                    generator.writeObject(store.toRestaurant(row));
+                    generator.writeRaw('\n');
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error answering query {}: {}", exchange.getRequestURI(), e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private static RestaurantQuery parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String pair : rawQuery.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                parameters.put(name, value);
+            }
+        }
+        String sort = parameters.getOrDefault("sort", "fee");
+        RestaurantQuery.SortKey sortBy;
+        try {
+            sortBy = RestaurantQuery.SortKey.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort " + sort + ", expected fee, eta or rating");
+        }
+        int limit = parameters.containsKey("limit") ? Integer.parseInt(parameters.get("limit")) : DEFAULT_LIMIT;
+        return new RestaurantQuery(
+                parameters.get("cuisine"),
+                parameters.containsKey("promo") ? Boolean.valueOf(parameters.get("promo")) : null,
+                parameters.containsKey("minRating") ? Double.valueOf(parameters.get("minRating")) : null,
+                parameters.containsKey("maxFee") ? Double.valueOf(parameters.get("maxFee")) : null,
+                sortBy,
+                Math.min(limit, MAX_LIMIT));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
@@ -1,19 +1,34 @@
 package org.webscraper.api;
 
-import kotlin.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.webscraper.exceptions.ScrapingException;
+import org.webscraper.index.FeeTimeIndex;
+import org.webscraper.index.RestaurantQueryIndex;
+import org.webscraper.index.SpatialIndex;
+import org.webscraper.model.BoundingBox;
+import org.webscraper.model.GeoTile;
+import org.webscraper.model.MetaData;
 import org.webscraper.model.Payload;
 import org.webscraper.model.Restaurant;
-import org.webscraper.model.ScrapedData;
+import org.webscraper.model.RestaurantColumnStore;
+import org.webscraper.model.ScrapeEvent;
+import org.webscraper.service.CoverageTracker;
+import org.webscraper.service.GeoTilingPlanner;
 import org.webscraper.service.MultiLocationScrapingService;
+import org.webscraper.service.RestaurantProfile;
+import org.webscraper.service.ScrapeProfiler;
+import org.webscraper.utils.FileUtil;
+import org.webscraper.service.ScrapeStream;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Class responsible for scraping restaurant data from multiple locations.
@@ -21,18 +36,47 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class RestaurantScraper {
     private final MultiLocationScrapingService multiLocationScrapingService;
-    private Map<String, Pair<Double, Integer>> restaurantIdFeeTimeMap;
+    // Replaced wholesale after every scrape, so lookups keep reading the previous snapshot during a refresh
+    private volatile FeeTimeIndex feeTimeIndex;
+    private volatile SpatialIndex spatialIndex = new SpatialIndex();
+    private volatile RestaurantQueryIndex queryIndex = RestaurantQueryIndex.empty();
+    private volatile boolean buildQueryIndex;
+    private RestaurantProfile lastRunProfile;
+    private int lastRunFailedLocations;
+    private List<GeoTile> lastRunLeafTiles = List.of();
     private static final Logger logger = LoggerFactory.getLogger(RestaurantScraper.class);
+    private static final int COVERAGE_SAMPLES_PER_SIDE = 200;
 
     /**
-     * Constructs a RestaurantScraper with specified services and initial data map.
+     * Constructs a RestaurantScraper with an empty fee/time index.
      *
      * @param multiLocationScrapingService the service used to scrape data from multiple locations
-     * @param restaurantIdMap              the initial map of restaurant IDs to their corresponding fee and time
      */
-    public RestaurantScraper(MultiLocationScrapingService multiLocationScrapingService, Map<String, Pair<Double, Integer>> restaurantIdMap) {
+    public RestaurantScraper(MultiLocationScrapingService multiLocationScrapingService) {
+        this(multiLocationScrapingService, FeeTimeIndex.empty());
+    }
+
+    /**
+     * Constructs a RestaurantScraper with specified services and initial fee/time index.
+     *
+     * @param multiLocationScrapingService the service used to scrape data from multiple locations
+     * @param feeTimeIndex                 the initial index of restaurant IDs to their corresponding fee and time
+     */
+    public RestaurantScraper(MultiLocationScrapingService multiLocationScrapingService, FeeTimeIndex feeTimeIndex) {
         this.multiLocationScrapingService = multiLocationScrapingService;
-        this.restaurantIdFeeTimeMap = restaurantIdMap;
+        this.feeTimeIndex = feeTimeIndex;
+    }
+
+    /**
+     * Builds the query index after every later scrape, for scrapers whose results are served by a
+     * {@link QueryServer}. Without it no copy of the results is kept for queries and {@link #getQueryIndex()} stays
+     * empty.
+     *
+     * @return this scraper, for chaining
+     */
+    public RestaurantScraper withQueryIndex() {
+        this.buildQueryIndex = true;
+        return this;
     }
 
     /**
@@ -44,23 +88,212 @@ public class RestaurantScraper {
      * @throws InterruptedException if the thread is interrupted
      */
     public Set<Restaurant> scrapeLocations(List<Payload> payloads) throws ScrapingException, InterruptedException {
-        var futures = multiLocationScrapingService.fetchScrapedData(payloads);
-        Set<Restaurant> restaurantSet = ConcurrentHashMap.newKeySet();  // Using a concurrent set for thread safety
-
-        futures.forEach(future -> {
-            try {
-                ScrapedData scrapedData = future.join();  // Wait for the future to complete
-                if (scrapedData != null) {
-                    restaurantSet.addAll(scrapedData.restaurantSet());  // Add all restaurants from the scraped data
+        Set<Restaurant> restaurantSet = new HashSet<>();
+        scrapeLocations(payloads, restaurantSet::add);
+        return restaurantSet;
+    }
+
+    /**
+     * Scrapes locations and hands every restaurant to the sink as soon as its page has been decoded. Restaurants
+     * seen from several locations are passed on once, so the IDs seen so far are kept, along with the fee/time and
+     * spatial indexes of this scrape and, with {@link #withQueryIndex()}, a column store for the query index.
+     *
+     * @param payloads a list of payloads to scrape data from
+     * @param sink     the consumer receiving each distinct restaurant, invoked sequentially
+     * @throws ScrapingException    if scraping fails
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void scrapeLocations(List<Payload> payloads, Consumer<? super Restaurant> sink) throws ScrapingException, InterruptedException {
+        consume(streamLocations(payloads), sink);
+    }
+
+    /**
+     * Prepares a streaming scrape of the provided payloads for consumers that process results as they arrive.
+     * Subscribe to the returned stream, then call {@link ScrapeStream#start()}.
+     *
+     * @param payloads a list of payloads to scrape data from
+     * @return a backpressured publisher of scrape events
+     */
+    public ScrapeStream streamLocations(List<Payload> payloads) {
+        return multiLocationScrapingService.streamScrapedData(payloads);
+    }
+
+    /**
+     * Scrapes a whole region adaptively, subdividing tiles wherever the per-location result cap was hit.
+     *
+     * @param tiles   the initial tiles covering the region
+     * @param planner the planner deciding payloads and subdivisions
+     * @return a set of Restaurants found across every tile
+     * @throws ScrapingException    if scraping fails
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public Set<Restaurant> scrapeRegion(List<GeoTile> tiles, GeoTilingPlanner planner) throws ScrapingException, InterruptedException {
+        Set<Restaurant> restaurantSet = new HashSet<>();
+        consume(multiLocationScrapingService.streamTiledScrapedData(tiles, planner), restaurantSet::add);
+        return restaurantSet;
+    }
+
+    /**
+     * Scrapes a whole region adaptively into a compact struct-of-arrays store instead of a set of records,
+     * which keeps country-scale results small enough to hold in memory.
+     *
+     * @param tiles           the initial tiles covering the region
+     * @param planner         the planner deciding payloads and subdivisions
+     * @param coverageTracker the tracker recording coverage as results arrive
+     * @return a column store holding each distinct restaurant once
+     * @throws ScrapingException    if scraping fails
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public RestaurantColumnStore scrapeRegionCompact(List<GeoTile> tiles, GeoTilingPlanner planner, CoverageTracker coverageTracker) throws ScrapingException, InterruptedException {
+        RestaurantColumnStore store = new RestaurantColumnStore();
+        scrapeRegion(tiles, planner, coverageTracker, store);
+        return store;
+    }
+
+    /**
+     * Scrapes a whole region adaptively, skipping tiles already covered by the results of their neighbours,
+     * and logs how much of the region the completed scrapes cover. Restaurants are handed to the sink as
+     * soon as their page has been decoded; restaurants seen from several tiles are passed on once.
+     * The tiles the sweep ended up at are kept for {@link #getLastRunLeafTiles()}.
+     *
+     * @param tiles           the initial tiles covering the region
+     * @param planner         the planner deciding payloads and subdivisions
+     * @param coverageTracker the tracker recording coverage as results arrive
+     * @param sink            the consumer receiving each distinct restaurant, invoked sequentially
+     * @throws ScrapingException    if scraping fails
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void scrapeRegion(List<GeoTile> tiles, GeoTilingPlanner planner, CoverageTracker coverageTracker, Consumer<? super Restaurant> sink) throws ScrapingException, InterruptedException {
+        List<GeoTile> leafTiles = Collections.synchronizedList(new ArrayList<>());
+        consume(multiLocationScrapingService.streamTiledScrapedData(tiles, planner, coverageTracker, leafTiles::add), sink);
+        lastRunLeafTiles = List.copyOf(leafTiles);
+        if (!tiles.isEmpty()) {
+            BoundingBox region = new BoundingBox(
+                    tiles.stream().mapToDouble(tile -> tile.bounds().minLatitude()).min().getAsDouble(),
+                    tiles.stream().mapToDouble(tile -> tile.bounds().minLongitude()).min().getAsDouble(),
+                    tiles.stream().mapToDouble(tile -> tile.bounds().maxLatitude()).max().getAsDouble(),
+                    tiles.stream().mapToDouble(tile -> tile.bounds().maxLongitude()).max().getAsDouble());
+            logger.info("Coverage: {} discs recorded, {} tiles skipped, {}% of the region covered",
+                    coverageTracker.getRecordedCount(), coverageTracker.getSkippedCount(),
+                    String.format("%.1f", coverageTracker.coverageRatio(region, COVERAGE_SAMPLES_PER_SIDE) * 100));
+        }
+    }
+
+    /**
+     * Consumes a scrape stream in a single pass in completion order: distinct restaurants go to the sink and
+     * into the next fee/time index snapshot, and each location's metadata is printed as soon as it completes and merged into a
+     * run-wide aggregate that is printed at the end. Every event also feeds the streaming profiler, and every
+     * distinct restaurant is added to this scrape's spatial index as it arrives. Once the stream is done the
+     * fee/time, spatial and, if enabled, query index snapshots of this scrape replace the previous ones, so
+     * restaurants that disappeared are no longer returned.
+     */
+    private void consume(ScrapeStream stream, Consumer<? super Restaurant> sink) throws ScrapingException, InterruptedException {
+        Set<String> seenIds = new HashSet<>();
+        FeeTimeIndex.Builder feeTimeIndexBuilder = new FeeTimeIndex.Builder();
+        SpatialIndex nextSpatialIndex = new SpatialIndex();
+        RestaurantColumnStore latest = buildQueryIndex ? new RestaurantColumnStore() : null;
+        MetaData aggregate = new MetaData(MultiLocationScrapingService.AGGREGATE_LOCATION);
+        ScrapeProfiler profiler = new ScrapeProfiler();
+        int[] failedLocations = {0};
+
+        // The consumer runs sequentially, so plain collections suffice
+        CompletableFuture<Void> consumed = stream.consume(event -> {
+            profiler.accept(event);
+            switch (event) {
+                case ScrapeEvent.RestaurantScraped scraped -> {
+                    Restaurant restaurant = scraped.restaurant();
+                    if (seenIds.add(restaurant.restaurantId())) {
+                        feeTimeIndexBuilder.put(restaurant.restaurantId(),
+                                restaurant.estimatedDeliveryFee().orElse(0.0), restaurant.estimatedDeliveryTimeMinutes());
+                        nextSpatialIndex.add(restaurant);
+                        if (latest != null) {
+                            latest.add(restaurant);
+                        }
+                        sink.accept(restaurant);
+                    }
+                }
+                case ScrapeEvent.LocationCompleted completed -> {
+                    multiLocationScrapingService.printMetaData(completed.metaData());
+                    aggregate.merge(completed.metaData());
                 }
-            } catch (CompletionException e) {
-                logger.error("Error processing future for scraped data: {}", e.getCause().getMessage(), e);
+                case ScrapeEvent.LocationFailed failed -> failedLocations[0]++; // Logged by the service
             }
         });
+        stream.start();
 
-        this.restaurantIdFeeTimeMap = multiLocationScrapingService.processScrapedData(futures);
-        multiLocationScrapingService.generateAggregateMetaData(futures);
-        return restaurantSet;
+        try {
+            consumed.get();
+        } catch (InterruptedException e) {
+            stream.cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new ScrapingException("Error consuming scraped data", e.getCause());
+        }
+        multiLocationScrapingService.printMetaData(aggregate);
+        lastRunProfile = profiler.getRunProfile();
+        lastRunFailedLocations = failedLocations[0];
+        logger.info("Run profile: {}", lastRunProfile.summary());
+        this.feeTimeIndex = feeTimeIndexBuilder.build();
+        this.spatialIndex = nextSpatialIndex;
+        if (latest != null) {
+            this.queryIndex = RestaurantQueryIndex.build(latest, FileUtil.mapper());
+        }
+    }
+
+    /**
+     * Returns the statistical profile of the most recent scrape, merged across its locations.
+     *
+     * @return the run-wide profile, or null if no scrape has completed
+     */
+    public RestaurantProfile getLastRunProfile() {
+        return lastRunProfile;
+    }
+
+    /**
+     * Returns how many locations of the most recent scrape failed, which makes its results partial.
+     *
+     * @return the number of failed locations
+     */
+    public int getLastRunFailedLocations() {
+        return lastRunFailedLocations;
+    }
+
+    /**
+     * Returns the leaf tiles of the most recent adaptive region scrape: every tile scraped, or failed, without being
+     * split. Unlike the initial grid they resolve dense areas down to the tile size that fit under the result cap.
+     *
+     * @return the leaf tiles, empty if no region scrape has completed
+     */
+    public List<GeoTile> getLastRunLeafTiles() {
+        return lastRunLeafTiles;
+    }
+
+    /**
+     * Returns the current fee/time index snapshot, which stays valid and unchanged while later scrapes run.
+     *
+     * @return the index built by the most recent scrape
+     */
+    public FeeTimeIndex getFeeTimeIndex() {
+        return feeTimeIndex;
+    }
+
+    /**
+     * Returns the secondary indexes over the restaurants of the most recent scrape, for the query server.
+     *
+     * @return the current query index snapshot, empty unless {@link #withQueryIndex()} was called
+     */
+    public RestaurantQueryIndex getQueryIndex() {
+        return queryIndex;
+    }
+
+    /**
+     * Returns the spatial index of the restaurants of the most recent scrape, which stays valid and unchanged while
+     * later scrapes run.
+     *
+     * @return the current spatial index snapshot
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
     }
 
     /**
@@ -69,12 +302,12 @@ public class RestaurantScraper {
      * @param restaurantId the ID of the restaurant
      */
     public void showEstimatedFeeTime(String restaurantId) {
-        if (restaurantIdFeeTimeMap.containsKey(restaurantId)) {
-            var pair = restaurantIdFeeTimeMap.get(restaurantId);
-            logger.info("Estimated fee for restaurant id {} is {}", restaurantId, pair.getFirst());
-            logger.info("Estimated time for restaurant id {} is {}", restaurantId, pair.getSecond());
-        } else {
+        FeeTimeIndex index = feeTimeIndex;
+        int entry = index.indexOf(restaurantId);
+        if (entry < 0) {
             throw new RuntimeException("The restaurantId is not present in our list");
         }
+        logger.info("Estimated fee for restaurant id {} is {}", restaurantId, index.fee(entry));
+        logger.info("Estimated time for restaurant id {} is {}", restaurantId, index.minutes(entry));
     }
 }
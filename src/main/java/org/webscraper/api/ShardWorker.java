@@ -0,0 +1,131 @@
+package org.webscraper.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.exceptions.ScrapingException;
+import org.webscraper.service.CoverageTracker;
+import org.webscraper.service.GeoTilingPlanner;
+import org.webscraper.store.LeaseQueue;
+import org.webscraper.store.ShardMerger;
+import org.webscraper.utils.ColumnarSnapshotWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One worker process of a sharded sweep. It keeps claiming batches from a {@link LeaseQueue}, sweeps their tiles
+ * adaptively like the single-process sweep, splitting every tile that hits the result cap, and writes the
+ * restaurants found to a columnar segment in the queue's output directory, renewing the lease from a heartbeat
+ * thread while the batch runs. A batch with failed locations is released for another attempt. The worker stops
+ * once no batch is pending or leased by anyone.
+ */
+public class ShardWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ShardWorker.class);
+    private final LeaseQueue queue;
+    private final RestaurantScraper restaurantScraper;
+    private final GeoTilingPlanner planner;
+    private final Supplier<CoverageTracker> coverageTrackers;
+    private final String workerId;
+    private final Duration heartbeatInterval;
+    private final Duration pollInterval;
+
+    /**
+     * Constructs a ShardWorker.
+     *
+     * @param queue             the shared queue
+     * @param restaurantScraper the scraper running each batch
+     * @param planner           the planner deciding payloads and subdivisions of the batches' tiles
+     * @param coverageTrackers  creates the coverage tracker of each batch
+     * @param workerId          the worker's id, unique among the workers sharing the queue
+     * @param heartbeatInterval how often the current lease is renewed, well below the lease duration
+     * @param pollInterval      how long to wait before asking again while other workers still hold leases
+     */
+    public ShardWorker(LeaseQueue queue, RestaurantScraper restaurantScraper, GeoTilingPlanner planner,
+                       Supplier<CoverageTracker> coverageTrackers, String workerId, Duration heartbeatInterval, Duration pollInterval) {
+        this.queue = queue;
+        this.restaurantScraper = restaurantScraper;
+        this.planner = planner;
+        this.coverageTrackers = coverageTrackers;
+        this.workerId = workerId;
+        this.heartbeatInterval = heartbeatInterval;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Processes batches until the queue is drained.
+     *
+     * @return the number of batches this worker completed
+     * @throws IOException          if the queue cannot be read or written
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public int run() throws IOException, InterruptedException {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+        int completed = 0;
+        try {
+            while (true) {
+                Optional<LeaseQueue.Lease> lease = queue.claim(workerId);
+                if (lease.isPresent()) {
+                    if (process(lease.get(), heartbeat)) {
+                        completed++;
+                    }
+                } else if (queue.isDrained()) {
+                    break;
+                } else {
+                    // Other workers hold the remaining batches; one of them may still expire
+                    Thread.sleep(pollInterval.toMillis());
+                }
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+        logger.info("Worker {} finished: {} batches completed", workerId, completed);
+        return completed;
+    }
+
+    private boolean process(LeaseQueue.Lease lease, ScheduledExecutorService heartbeat) throws IOException, InterruptedException {
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renew(lease),
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Path segment = Files.createTempFile(queue.tempDirectory(), lease.batch().id(), ShardMerger.SEGMENT_SUFFIX);
+        try {
+            try (ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(segment.toString())) {
+                restaurantScraper.scrapeRegion(lease.batch().tiles(), planner, coverageTrackers.get(), writer);
+            }
+            if (restaurantScraper.getLastRunFailedLocations() > 0) {
+                logger.warn("Batch {}: {} locations failed", lease.batch().id(), restaurantScraper.getLastRunFailedLocations());
+                queue.release(lease);
+                return false;
+            }
+            // A reclaimed batch finished by two workers writes the same name, and either copy is complete
+            Files.move(segment, queue.outputDirectory().resolve(lease.batch().id() + ShardMerger.SEGMENT_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return queue.complete(lease);
+        } catch (ScrapingException | UncheckedIOException e) {
+            logger.error("Batch {} failed: {}", lease.batch().id(), e.getMessage(), e);
+            queue.release(lease);
+            return false;
+        } finally {
+            renewal.cancel(false);
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    private void renew(LeaseQueue.Lease lease) {
+        try {
+            if (!queue.renew(lease)) {
+                logger.warn("Lease of batch {} was lost; its results will still be written", lease.batch().id());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to renew the lease of batch {}: {}", lease.batch().id(), e.getMessage(), e);
+        }
+    }
+}
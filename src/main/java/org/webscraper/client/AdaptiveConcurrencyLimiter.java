@@ -0,0 +1,254 @@
+package org.webscraper.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared limit on the number of requests in flight that adapts to how the API responds (AIMD).
+ * Every successful response with a normal round trip time raises the limit by {@code 1 / limit}, so it grows by
+ * about one per limit's worth of responses. A throttling or server error response, a failed call or a round trip
+ * slower than {@link #LATENCY_TOLERANCE} times the long-run average cuts the limit by {@link #BACKOFF_RATIO}, at
+ * most once per round trip so that one burst of failures counts as one signal.
+ * Callers over the limit wait in FIFO order, so no one keeps sending at full speed while the API is struggling.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    public static final double LATENCY_TOLERANCE = 2.0;
+    public static final double BACKOFF_RATIO = 0.5;
+    private static final double SHORT_RTT_SMOOTHING = 0.2;
+    private static final double LONG_RTT_SMOOTHING = 0.02;
+    private final int minLimit;
+    private final int maxLimit;
+    private final Queue<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double smoothedRttNanos;
+    private double baselineRttNanos;
+    private long lastDecreaseNanos = System.nanoTime();
+    private long drops;
+
+    /**
+     * Outcome of one request, reported through the permit that admitted it.
+     */
+    public enum Outcome {
+        /** A response that shows the API is healthy */
+        SUCCESS,
+        /** A 429 or 5xx response, or a failed call */
+        DROPPED,
+        /** A response that says nothing about the API's load, such as a cancelled call */
+        IGNORED
+    }
+
+    /**
+     * Admission of one request. It must be released exactly once.
+     */
+    public final class Permit {
+        private volatile long startNanos = System.nanoTime();
+        private boolean released;
+
+        /**
+         * Restarts the round trip clock as the request goes on the wire, so time spent waiting for a rate limit
+         * permit after the slot was granted is not mistaken for server latency.
+         */
+        public void markSent() {
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Returns the slot and feeds the request's outcome and round trip time into the limit.
+         *
+         * @param outcome how the request went
+         */
+        public void release(Outcome outcome) {
+            AdaptiveConcurrencyLimiter.this.release(this, outcome, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Constructs an AdaptiveConcurrencyLimiter.
+     *
+     * @param initialLimit the starting limit
+     * @param minLimit     the limit is never cut below this
+     * @param maxLimit     the limit never grows above this, typically the HTTP client's own cap
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Creates a limiter that never makes callers wait, for clients that do not limit concurrency.
+     *
+     * @return an unbounded limiter
+     */
+    public static AdaptiveConcurrencyLimiter unlimited() {
+        return new AdaptiveConcurrencyLimiter(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Waits for a slot, blocking the calling thread.
+     *
+     * @return the permit to release once the response is in
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public Permit acquire() throws InterruptedException {
+        CompletableFuture<Permit> permit = acquireAsync();
+        try {
+            return permit.get();
+        } catch (InterruptedException e) {
+            // A slot granted after giving up is handed straight back
+            if (!permit.cancel(false)) {
+                permit.join().release(Outcome.IGNORED);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for a slot without blocking the caller. If the returned future is cancelled, the slot is never taken.
+     *
+     * @return a future completed with the permit once a slot is free
+     */
+    public synchronized CompletableFuture<Permit> acquireAsync() {
+        if (waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return CompletableFuture.completedFuture(new Permit());
+        }
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Takes a slot only if one is free right now and nobody is waiting, for optional requests such as hedges.
+     *
+     * @return the permit, or null if the limit is reached
+     */
+    public synchronized Permit tryAcquire() {
+        if (waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return new Permit();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current in-flight limit.
+     *
+     * @return the limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of requests currently admitted.
+     *
+     * @return the requests in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the recent round trip time, smoothed over the last few responses.
+     *
+     * @return the smoothed RTT in milliseconds, 0 before the first response
+     */
+    public synchronized double getSmoothedRttMillis() {
+        return smoothedRttNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the long-run average round trip time that latency spikes are measured against.
+     *
+     * @return the baseline RTT in milliseconds, 0 before the first response
+     */
+    public synchronized double getBaselineRttMillis() {
+        return baselineRttNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns how many times the limit has been cut.
+     *
+     * @return the number of decreases
+     */
+    public synchronized long getDrops() {
+        return drops;
+    }
+
+    /**
+     * Summarizes the limiter's metrics in one line, for logging.
+     *
+     * @return the summary
+     */
+    public synchronized String summary() {
+        return String.format("limit %d, in flight %d, RTT %.0f ms (baseline %.0f ms), %d decreases",
+                (int) limit, inFlight, getSmoothedRttMillis(), getBaselineRttMillis(), drops);
+    }
+
+    private void release(Permit permit, Outcome outcome, long rttNanos) {
+        Queue<CompletableFuture<Permit>> admitted = new ArrayDeque<>();
+        synchronized (this) {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            inFlight--;
+            if (outcome != Outcome.IGNORED) {
+                adjust(outcome, rttNanos);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                CompletableFuture<Permit> waiter = waiters.poll();
+                if (!waiter.isDone()) {
+                    inFlight++;
+                    admitted.add(waiter);
+                }
+            }
+        }
+        // Completed outside the lock, since completion runs the waiters' continuations
+        for (CompletableFuture<Permit> waiter : admitted) {
+            Permit next = new Permit();
+            if (!waiter.complete(next)) {
+                next.release(Outcome.IGNORED); // Cancelled in the meantime
+            }
+        }
+    }
+
+    private void adjust(Outcome outcome, long rttNanos) {
+        boolean spike = baselineRttNanos > 0 && rttNanos > LATENCY_TOLERANCE * baselineRttNanos;
+        if (outcome == Outcome.SUCCESS) {
+            smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos
+                    : SHORT_RTT_SMOOTHING * rttNanos + (1 - SHORT_RTT_SMOOTHING) * smoothedRttNanos;
+            baselineRttNanos = baselineRttNanos == 0 ? rttNanos
+                    : LONG_RTT_SMOOTHING * rttNanos + (1 - LONG_RTT_SMOOTHING) * baselineRttNanos;
+        }
+        if (minLimit == maxLimit) {
+            return; // A fixed limit only tracks RTT
+        }
+        if (outcome == Outcome.SUCCESS && !spike) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < smoothedRttNanos) {
+            return; // Responses to requests sent before the last cut say nothing about the new limit
+        }
+        lastDecreaseNanos = now;
+        drops++;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        logger.warn("Concurrency limit cut to {} after {}", (int) limit, outcome == Outcome.DROPPED ? "an error response" : "a latency spike");
+    }
+}
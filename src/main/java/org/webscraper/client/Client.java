@@ -1,19 +1,341 @@
 package org.webscraper.client;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.Response;
+import org.webscraper.exceptions.DeadlineExceededException;
 import org.webscraper.model.Payload;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class Client {
+    protected static final long NO_HEDGE = -1;
     protected final OkHttpClient httpClient;
+    protected final RateLimiter rateLimiter;
+    protected final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final LongAdder hedgesSent = new LongAdder();
 
     public Client(OkHttpClient httpClient) {
+        this(httpClient, RateLimiter.unlimited());
+    }
+
+    public Client(OkHttpClient httpClient, RateLimiter rateLimiter) {
+        this(httpClient, rateLimiter, AdaptiveConcurrencyLimiter.unlimited());
+    }
+
+    public Client(OkHttpClient httpClient, RateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.httpClient = httpClient;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Returns the concurrency limiter shared by this client's requests, for reading its metrics.
+     *
+     * @return the concurrency limiter
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Returns how many hedged duplicates this client has sent.
+     *
+     * @return the number of hedges
+     */
+    public long getHedgesSent() {
+        return hedgesSent.sum();
     }
 
     public abstract Response makeRequest(String requestBody) throws IOException, InterruptedException;
     public abstract Response makeRequest(Payload payload) throws IOException, InterruptedException;
-}
 
+    /**
+     * Non-blocking variant of {@link #makeRequest(Payload)}. No caller thread is parked while the request is in flight.
+     *
+     * @param payload the payload to send
+     * @return a future completed with the response on OkHttp's dispatcher, or exceptionally if the request fails
+     */
+    public abstract CompletableFuture<Response> makeRequestAsync(Payload payload);
+
+    /**
+     * Variant of {@link #makeRequest(Payload)} bounded by a deadline. Clients that cannot bound a call only check
+     * the deadline before sending it.
+     *
+     * @param payload  the payload to send
+     * @param deadline the deadline of the sweep or location the request is made for
+     * @return the response
+     * @throws DeadlineExceededException if the deadline passes before a response arrives
+     * @throws IOException               if the request fails
+     * @throws InterruptedException      if the thread is interrupted
+     */
+    public Response makeRequest(Payload payload, Deadline deadline) throws IOException, InterruptedException {
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException("Deadline passed before the request was sent");
+        }
+        return makeRequest(payload);
+    }
+
+    /**
+     * Variant of {@link #makeRequestAsync(Payload)} bounded by a deadline. Clients that cannot bound a call only
+     * check the deadline before sending it.
+     *
+     * @param payload  the payload to send
+     * @param deadline the deadline of the sweep or location the request is made for
+     * @return a future completed with the response, or exceptionally with a {@link DeadlineExceededException}
+     * if the deadline passes first
+     */
+    public CompletableFuture<Response> makeRequestAsync(Payload payload, Deadline deadline) {
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException("Deadline passed before the request was sent"));
+        }
+        return makeRequestAsync(payload);
+    }
+
+    /**
+     * Executes a call once the concurrency limiter has a free slot and then the shared rate limiter permits it,
+     * blocking the calling thread until then. The slot is taken first, so callers waiting for one have not spent rate
+     * permits yet and are spaced out by the rate limiter when slots free up. The response headers' arrival ends the
+     * slot; the round trip time reported to the limiter starts when the call is sent, not when the slot is granted.
+     *
+     * @param request the request to execute
+     * @return the raw response, successful or not
+     * @throws IOException          if the call fails
+     * @throws InterruptedException if the thread is interrupted while waiting for a permit
+     */
+    protected Response execute(Request request) throws IOException, InterruptedException {
+        return execute(request, Deadline.none());
+    }
+
+    /**
+     * Executes a call like {@link #execute(Request)}, with OkHttp's call timeout set to the time left before the
+     * deadline, so the whole call including the response body is cut off when it passes.
+     *
+     * @param request  the request to execute
+     * @param deadline the deadline of the call
+     * @return the raw response, successful or not
+     * @throws DeadlineExceededException if the deadline passes first
+     * @throws IOException               if the call fails
+     * @throws InterruptedException      if the thread is interrupted while waiting for a permit
+     */
+    protected Response execute(Request request, Deadline deadline) throws IOException, InterruptedException {
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire();
+        try {
+            rateLimiter.acquire(RateLimiter.endpointOf(request.url()));
+        } catch (InterruptedException e) {
+            permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+            throw e;
+        }
+        try {
+            permit.markSent();
+            Response response = newCall(request, deadline).execute();
+            permit.release(outcomeOf(response));
+            return response;
+        } catch (IOException e) {
+            permit.release(deadline.isExpired() ? AdaptiveConcurrencyLimiter.Outcome.IGNORED : AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+            throw translate(e, deadline);
+        } catch (RuntimeException e) {
+            permit.release(AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+            throw e;
+        }
+    }
+
+    /**
+     * Enqueues a call on OkHttp's dispatcher once the concurrency limiter has a free slot and then the shared rate
+     * limiter permits it, bridging its callback to a CompletableFuture. As with {@link #execute(Request)}, the slot
+     * is taken first so that requests parked for a slot do not fire at once, above the rate, when slots free up.
+     * Cancelling the returned future gives up the wait for a slot or permit, or cancels the underlying call if it
+     * has already been sent.
+     *
+     * @param request the request to enqueue
+     * @return a future completed with the raw response, successful or not
+     */
+    protected CompletableFuture<Response> enqueue(Request request) {
+        return enqueue(request, Deadline.none());
+    }
+
+    /**
+     * Enqueues a call like {@link #enqueue(Request)}, with OkHttp's call timeout set to the time left before the
+     * deadline once the call is actually sent.
+     *
+     * @param request  the request to enqueue
+     * @param deadline the deadline of the call
+     * @return a future completed with the raw response, or exceptionally with a {@link DeadlineExceededException}
+     * if the deadline passes first
+     */
+    protected CompletableFuture<Response> enqueue(Request request, Deadline deadline) {
+        return enqueue(request, deadline, NO_HEDGE);
+    }
+
+    /**
+     * Enqueues a call like {@link #enqueue(Request, Deadline)} and hedges it: if no response has arrived the
+     * given time after it was sent, a duplicate is sent, and the first successful response of the two is used.
+     * The other copy is then cancelled, freeing its connection and concurrency slot, and the call fails only if
+     * both copies fail.
+     * A hedge is only sent if a rate limit permit and a concurrency slot are free at that moment, so hedges use
+     * spare capacity and never queue behind first attempts.
+     *
+     * @param request          the request to enqueue
+     * @param deadline         the deadline of the call
+     * @param hedgeDelayMillis how long after sending to hedge, or {@link #NO_HEDGE}
+     * @return a future completed with the first successful response, or with the last failure
+     */
+    protected CompletableFuture<Response> enqueue(Request request, Deadline deadline, long hedgeDelayMillis) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> slot = concurrencyLimiter.acquireAsync();
+        cancelWith(result, slot);
+        slot.whenComplete((permit, slotError) -> {
+            if (slotError != null) {
+                result.completeExceptionally(slotError);
+                return;
+            }
+            CompletableFuture<Void> ratePermit = rateLimiter.acquireAsync(RateLimiter.endpointOf(request.url()));
+            cancelWith(result, ratePermit);
+            ratePermit.whenComplete((ignored, error) -> {
+                if (result.isDone() || error != null || deadline.isExpired()) {
+                    permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                    result.completeExceptionally(error != null ? error
+                            : new DeadlineExceededException("Deadline passed before " + request.url() + " was sent"));
+                    return;
+                }
+                CompletableFuture<Response> future = enqueueNow(request, deadline, permit);
+                CompletableFuture<Response> response = hedgeDelayMillis < 0 ? future : hedge(request, deadline, future, hedgeDelayMillis);
+                cancelWith(result, response);
+                response.whenComplete((value, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else if (!result.complete(value)) {
+                        value.close(); // Cancelled while the response was arriving
+                    }
+                });
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Cancels one step of a request when the future handed to the caller is cancelled. A step that has already
+     * completed is unaffected.
+     */
+    private static void cancelWith(CompletableFuture<?> result, CompletableFuture<?> step) {
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                step.cancel(true);
+            }
+        });
+    }
+
+    private CompletableFuture<Response> hedge(Request request, Deadline deadline, CompletableFuture<Response> primary, long delayMillis) {
+        if (TimeUnit.MILLISECONDS.toNanos(delayMillis) >= deadline.remainingNanos()) {
+            return primary; // The hedge could never be sent in time
+        }
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        // Once one copy has won, or the caller has given up, the other is cancelled rather than left to run
+        result.whenComplete((ignored, error) -> primary.cancel(true));
+        primary.whenComplete((response, error) -> settle(result, outstanding, response, error));
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone() || deadline.isExpired()) {
+                return;
+            }
+            AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+            if (permit == null) {
+                return;
+            }
+            if (!rateLimiter.tryAcquire(RateLimiter.endpointOf(request.url()))) {
+                permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                return;
+            }
+            outstanding.incrementAndGet();
+            hedgesSent.increment();
+            CompletableFuture<Response> duplicate = enqueueNow(request, deadline, permit);
+            result.whenComplete((ignored, error) -> duplicate.cancel(true));
+            duplicate.whenComplete((response, error) -> settle(result, outstanding, response, error));
+        });
+        return result;
+    }
+
+    private static void settle(CompletableFuture<Response> result, AtomicInteger outstanding, Response response, Throwable error) {
+        boolean last = outstanding.decrementAndGet() == 0;
+        if (error == null && response.isSuccessful()) {
+            if (!result.complete(response)) {
+                response.close(); // The other copy answered before this one could be cancelled
+            }
+            return;
+        }
+        if (last) {
+            // The primary's unsuccessful response is passed on as usual, so the caller can retry it
+            if (error == null ? !result.complete(response) : !result.completeExceptionally(error)) {
+                if (response != null) {
+                    response.close();
+                }
+            }
+        } else if (response != null) {
+            response.close();
+        }
+    }
+
+    /**
+     * Classifies a response for the concurrency limiter: throttling and server errors mean the API is overloaded,
+     * anything else means it kept up.
+     */
+    private static AdaptiveConcurrencyLimiter.Outcome outcomeOf(Response response) {
+        return response.code() == 429 || response.code() >= 500
+                ? AdaptiveConcurrencyLimiter.Outcome.DROPPED
+                : AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+    }
+
+    private CompletableFuture<Response> enqueueNow(Request request, Deadline deadline, AdaptiveConcurrencyLimiter.Permit permit) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Call call = newCall(request, deadline);
+        permit.markSent();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(translate(e, deadline));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (!future.complete(response)) {
+                    response.close();
+                }
+            }
+        });
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+            permit.release(error == null ? outcomeOf(response)
+                    : future.isCancelled() || deadline.isExpired() ? AdaptiveConcurrencyLimiter.Outcome.IGNORED
+                    : AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+        });
+        return future;
+    }
+
+    private Call newCall(Request request, Deadline deadline) {
+        Call call = httpClient.newCall(request);
+        if (deadline.isBounded()) {
+            call.timeout().timeout(Math.max(1, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * Reports a call cut off by its deadline as a {@link DeadlineExceededException}, so callers can tell it from
+     * an API failure.
+     */
+    private static IOException translate(IOException error, Deadline deadline) {
+        if (error instanceof InterruptedIOException && deadline.isExpired()) {
+            return new DeadlineExceededException("Deadline passed while the call was in flight", error);
+        }
+        return error;
+    }
+}
@@ -0,0 +1,87 @@
+package org.webscraper.client;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a sweep, a location or a single request must be done, carried down from the caller to
+ * every request made on its behalf. Deadlines are measured on the monotonic clock, so wall clock changes do not
+ * move them.
+ */
+public final class Deadline {
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Creates a deadline the given time from now.
+     *
+     * @param timeout the time left, or null for no deadline
+     * @return the deadline
+     */
+    public static Deadline after(Duration timeout) {
+        if (timeout == null) {
+            return NONE;
+        }
+        long now = System.nanoTime();
+        long nanos = timeout.toNanos();
+        // Saturate rather than overflow for very long timeouts
+        return nanos >= Long.MAX_VALUE - now ? NONE : new Deadline(now + nanos);
+    }
+
+    /**
+     * Returns a deadline that never expires.
+     *
+     * @return the unbounded deadline
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * Tells whether the deadline is bounded.
+     *
+     * @return false for {@link #none()}
+     */
+    public boolean isBounded() {
+        return this != NONE;
+    }
+
+    /**
+     * Returns the earlier of this deadline and another, so a location's deadline never outlives its sweep's.
+     *
+     * @param other the other deadline
+     * @return the deadline expiring first
+     */
+    public Deadline min(Deadline other) {
+        return other.expiresAtNanos - expiresAtNanos < 0 ? other : this;
+    }
+
+    /**
+     * Returns the time left.
+     *
+     * @return the remaining nanoseconds, 0 once expired, {@link Long#MAX_VALUE} if unbounded
+     */
+    public long remainingNanos() {
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, expiresAtNanos - System.nanoTime());
+    }
+
+    /**
+     * Tells whether the deadline has passed.
+     *
+     * @return true once no time is left
+     */
+    public boolean isExpired() {
+        return isBounded() && remainingNanos() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return isBounded() ? "Deadline[" + Duration.ofNanos(remainingNanos()) + " left]" : "Deadline[none]";
+    }
+}
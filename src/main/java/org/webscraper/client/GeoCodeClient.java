@@ -15,6 +15,7 @@ import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Client class for making geocoding requests to OpenStreetMap's Nominatim API.
@@ -32,6 +33,16 @@ public class GeoCodeClient extends Client {
         super(httpClient);
     }
 
+    /**
+     * Constructs a GeoCodeClient whose requests are paced by a rate limiter.
+     *
+     * @param httpClient the OkHttpClient instance to use for requests
+     * @param rateLimiter the rate limiter applied to every geocoding request
+     */
+    public GeoCodeClient(OkHttpClient httpClient, RateLimiter rateLimiter) {
+        super(httpClient, rateLimiter);
+    }
+
     @Override
     public Response makeRequest(String address) throws IOException, InterruptedException {
         String url = GEOCODING_API_URL + "?q=" + address + "&format=json&limit=5&countrycodes=SG";
@@ -41,12 +52,17 @@ public class GeoCodeClient extends Client {
                 .build();
 
         logger.info("Making request to geocoding API: {}", url);
-        return httpClient.newCall(request).execute();
+        return execute(request);
     }
 
     @Override
     public Response makeRequest(Payload payload) {
         return null;
     }
+
+    @Override
+    public CompletableFuture<Response> makeRequestAsync(Payload payload) {
+        return CompletableFuture.completedFuture(null);
+    }
 }
 
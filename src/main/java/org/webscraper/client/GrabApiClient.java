@@ -4,19 +4,33 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.webscraper.exceptions.DeadlineExceededException;
 import org.webscraper.model.Payload;
+import org.webscraper.utils.TDigest;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
- * Client class for making API requests to Grab's search endpoint
+ * Client class for making API requests to Grab's search endpoint.
+ * Requests made with a deadline are cut off when it passes and are not retried past it. With
+ * {@link #withHedging()}, async requests made with a deadline are hedged after the observed p95 latency, see
+ * {@link Client#enqueue(Request, Deadline, long)}.
  */
 public class GrabApiClient extends Client {
     private static final Logger logger = LoggerFactory.getLogger(GrabApiClient.class);
     private static final String GRAB_API_SEARCH_URL = "https://portal.grab.com/foodweb/v2/search";
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_INTERVAL_MS = 1000;
+    private static final double HEDGE_QUANTILE = 0.95;
+    private static final int HEDGE_MIN_SAMPLES = 100;
     private final ObjectMapper objectMapper;
+    private final TDigest latenciesMillis = new TDigest();
+    private volatile boolean hedging;
 
     /**
      * Constructs a GrabApiClient with a specific HTTP client and an object mapper for JSON processing.
@@ -29,6 +43,54 @@ public class GrabApiClient extends Client {
         this.objectMapper = objectMapper;
     }
 
+    /**
+     * Constructs a GrabApiClient whose requests are paced by a shared rate limiter.
+     *
+     * @param httpClient the OkHttpClient instance to use for requests
+     * @param objectMapper the ObjectMapper instance to use for JSON serialization
+     * @param rateLimiter the rate limiter shared by every request to the API
+     */
+    public GrabApiClient(OkHttpClient httpClient, ObjectMapper objectMapper, RateLimiter rateLimiter) {
+        super(httpClient, rateLimiter);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Constructs a GrabApiClient whose requests are paced by a shared rate limiter and whose requests in flight
+     * are capped by a shared adaptive concurrency limiter.
+     *
+     * @param httpClient the OkHttpClient instance to use for requests
+     * @param objectMapper the ObjectMapper instance to use for JSON serialization
+     * @param rateLimiter the rate limiter shared by every request to the API
+     * @param concurrencyLimiter the concurrency limiter shared by every request to the API
+     */
+    public GrabApiClient(OkHttpClient httpClient, ObjectMapper objectMapper, RateLimiter rateLimiter,
+                         AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        super(httpClient, rateLimiter, concurrencyLimiter);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Enables hedged async requests.
+     *
+     * @return this client, for chaining
+     */
+    public GrabApiClient withHedging() {
+        this.hedging = true;
+        return this;
+    }
+
+    /**
+     * Returns the latency after which a request is hedged.
+     *
+     * @return the observed p95 latency in milliseconds, or -1 until enough requests have completed
+     */
+    public double getHedgeDelayMillis() {
+        synchronized (latenciesMillis) {
+            return latenciesMillis.count() < HEDGE_MIN_SAMPLES ? -1 : latenciesMillis.quantile(HEDGE_QUANTILE);
+        }
+    }
+
     @Override
     public Response makeRequest(String requestBody) {
         // Implement if necessary, or remove if not used.
@@ -42,34 +104,127 @@ public class GrabApiClient extends Client {
             throw new IllegalArgumentException("Payload cannot be null");
         }
 
+        return executeRequestWithRetry(buildSearchRequest(payload), Deadline.none());
+    }
+
+    @Override
+    public Response makeRequest(Payload payload, Deadline deadline) throws IOException, InterruptedException {
+        if (payload == null) {
+            logger.error("Payload cannot be null");
+            throw new IllegalArgumentException("Payload cannot be null");
+        }
+
+        return executeRequestWithRetry(buildSearchRequest(payload), deadline);
+    }
+
+    @Override
+    public CompletableFuture<Response> makeRequestAsync(Payload payload) {
+        if (payload == null) {
+            logger.error("Payload cannot be null");
+            throw new IllegalArgumentException("Payload cannot be null");
+        }
+
+        try {
+            return executeAsyncWithRetry(buildSearchRequest(payload), 0, Deadline.none(), NO_HEDGE);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> makeRequestAsync(Payload payload, Deadline deadline) {
+        if (payload == null) {
+            logger.error("Payload cannot be null");
+            throw new IllegalArgumentException("Payload cannot be null");
+        }
+
+        try {
+            long hedgeDelayMillis = hedging ? (long) getHedgeDelayMillis() : NO_HEDGE;
+            return executeAsyncWithRetry(buildSearchRequest(payload), 0, deadline, hedgeDelayMillis);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request buildSearchRequest(Payload payload) throws IOException {
         String requestBody = objectMapper.writeValueAsString(payload);
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(GRAB_API_SEARCH_URL)
                 .post(RequestBody.create(requestBody, MediaType.parse("application/json; charset=utf-8")))
                 .build();
-
-        return executeRequestWithRetry(request);
     }
 
-    private Response executeRequestWithRetry(Request request) throws IOException, InterruptedException {
+    private Response executeRequestWithRetry(Request request, Deadline deadline) throws IOException, InterruptedException {
         int retryCount = 0;
         while (retryCount < MAX_RETRIES) {
             try {
                 logger.info("Sending request to URL: {}", request.url());
-                Response response = httpClient.newCall(request).execute();
+                Response response = execute(request, deadline);
                 if (response.isSuccessful()) {
                     return response;
                 }
                 logger.warn("Request failed with status code: {}", response.code());
                 response.close();
+                checkTimeToRetry(request, deadline);
                 Thread.sleep(RETRY_INTERVAL_MS);
                 retryCount++;
+            } catch (DeadlineExceededException e) {
+                throw e;
             } catch (IOException | InterruptedException e) {
                 logger.error("Request failed: {}", e.getMessage(), e);
                 retryCount++;
+                checkTimeToRetry(request, deadline);
                 Thread.sleep(RETRY_INTERVAL_MS);
             }
         }
         throw new IOException("Max retries exceeded for URL: " + request.url());
     }
+
+    private static void checkTimeToRetry(Request request, Deadline deadline) throws DeadlineExceededException {
+        if (deadline.remainingNanos() <= TimeUnit.MILLISECONDS.toNanos(RETRY_INTERVAL_MS)) {
+            throw new DeadlineExceededException("Deadline leaves no time to retry " + request.url());
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #executeRequestWithRetry(Request, Deadline)}.
+     * Retries are scheduled on a delayed executor instead of sleeping the calling thread.
+     */
+    private CompletableFuture<Response> executeAsyncWithRetry(Request request, int retryCount, Deadline deadline, long hedgeDelayMillis) {
+        logger.info("Sending async request to URL: {}", request.url());
+        return enqueue(request, deadline, hedgeDelayMillis).handle((response, error) -> {
+            if (error == null && response.isSuccessful()) {
+                // Time on the wire only, since waiting for rate limit permits says nothing about the API
+                recordLatency(response.receivedResponseAtMillis() - response.sentRequestAtMillis());
+                return CompletableFuture.completedFuture(response);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof DeadlineExceededException) {
+                return CompletableFuture.<Response>failedFuture(cause);
+            }
+            if (error != null) {
+                logger.error("Request failed: {}", error.getMessage(), error);
+            } else {
+                logger.warn("Request failed with status code: {}", response.code());
+                response.close();
+            }
+            if (retryCount + 1 >= MAX_RETRIES) {
+                return CompletableFuture.<Response>failedFuture(new IOException("Max retries exceeded for URL: " + request.url()));
+            }
+            try {
+                checkTimeToRetry(request, deadline);
+            } catch (DeadlineExceededException e) {
+                return CompletableFuture.<Response>failedFuture(e);
+            }
+            Executor retryDelay = CompletableFuture.delayedExecutor(RETRY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            return CompletableFuture.runAsync(() -> { }, retryDelay)
+                    .thenCompose(ignored -> executeAsyncWithRetry(request, retryCount + 1, deadline, hedgeDelayMillis));
+        }).thenCompose(Function.identity());
+    }
+
+    private void recordLatency(long millis) {
+        synchronized (latenciesMillis) {
+            latenciesMillis.add(millis);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package org.webscraper.client;
+
+import okhttp3.HttpUrl;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared rate limiter that every {@link Client} request goes through.
+ * A global token bucket caps the total request rate, and optional per-endpoint buckets
+ * cap individual endpoints underneath it. A request must obtain a permit from both.
+ */
+public class RateLimiter {
+    private final TokenBucket globalBucket;
+    private final Map<String, TokenBucket> endpointBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a RateLimiter with a global requests-per-second ceiling.
+     *
+     * @param permitsPerSecond the steady global request rate
+     * @param burst            the number of requests that may be sent back to back
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this(new TokenBucket(permitsPerSecond, burst));
+    }
+
+    private RateLimiter(TokenBucket globalBucket) {
+        this.globalBucket = globalBucket;
+    }
+
+    /**
+     * Creates a limiter without a global ceiling. Endpoint limits may still be added to it.
+     *
+     * @return an unlimited RateLimiter
+     */
+    public static RateLimiter unlimited() {
+        return new RateLimiter(null);
+    }
+
+    /**
+     * Adds a dedicated bucket for one endpoint.
+     *
+     * @param endpoint         the endpoint key, as produced by {@link #endpointOf(HttpUrl)}
+     * @param permitsPerSecond the steady request rate for the endpoint
+     * @param burst            the number of requests to the endpoint that may be sent back to back
+     * @return this limiter, for chaining
+     */
+    public RateLimiter withEndpointLimit(String endpoint, double permitsPerSecond, int burst) {
+        endpointBuckets.put(endpoint, new TokenBucket(permitsPerSecond, burst));
+        return this;
+    }
+
+    /**
+     * Blocks until a request to the endpoint is permitted.
+     *
+     * @param endpoint the endpoint key of the request
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(String endpoint) throws InterruptedException {
+        long waitNanos = reserve(endpoint);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves a permit for the endpoint without blocking the caller.
+     *
+     * @param endpoint the endpoint key of the request
+     * @return a future that completes once the request may be sent
+     */
+    public CompletableFuture<Void> acquireAsync(String endpoint) {
+        return delay(reserve(endpoint));
+    }
+
+    /**
+     * Takes a permit for the endpoint only if one is available right now, for optional requests such as hedges.
+     * Nothing is taken unless both the global and the endpoint bucket have a permit.
+     *
+     * @param endpoint the endpoint key of the request
+     * @return true if the request may be sent now
+     */
+    public boolean tryAcquire(String endpoint) {
+        if (globalBucket != null && !globalBucket.tryAcquire()) {
+            return false;
+        }
+        TokenBucket endpointBucket = endpointBuckets.get(endpoint);
+        if (endpointBucket != null && !endpointBucket.tryAcquire()) {
+            if (globalBucket != null) {
+                globalBucket.refund(); // Otherwise every skipped hedge would shrink the global budget
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Builds the endpoint key for a URL: host and path, without the query string.
+     *
+     * @param url the request URL
+     * @return the endpoint key
+     */
+    public static String endpointOf(HttpUrl url) {
+        return url.host() + url.encodedPath();
+    }
+
+    private long reserve(String endpoint) {
+        long waitNanos = globalBucket == null ? 0 : globalBucket.reserve();
+        TokenBucket endpointBucket = endpointBuckets.get(endpoint);
+        if (endpointBucket != null) {
+            waitNanos = Math.max(waitNanos, endpointBucket.reserve());
+        }
+        return waitNanos;
+    }
+
+    static CompletableFuture<Void> delay(long nanos) {
+        if (nanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+    }
+}
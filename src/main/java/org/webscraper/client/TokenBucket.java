@@ -0,0 +1,104 @@
+package org.webscraper.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that refills at a steady rate up to a fixed burst capacity.
+ * Permits are handed out as reservations: a caller that finds the bucket empty still takes a token,
+ * driving the balance negative, and is told how long to wait. Concurrent callers are therefore
+ * spaced evenly instead of all retrying at once when a token becomes available.
+ */
+public class TokenBucket {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final double permitsPerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Constructs a full TokenBucket.
+     *
+     * @param permitsPerSecond the steady refill rate
+     * @param burst            the maximum number of permits that can be taken back to back
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Permits per second must be positive");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserves one permit.
+     *
+     * @return how long in nanoseconds the caller must wait before using the permit; 0 if it is usable now
+     */
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens / permitsPerSecond * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Takes a permit only if one is available right now.
+     *
+     * @return true if a permit was taken
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a permit taken with {@link #tryAcquire()} that ended up unused.
+     */
+    synchronized void refund() {
+        refill();
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+    /**
+     * Takes a permit, sleeping the calling thread until it is usable.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a permit without blocking.
+     *
+     * @return a future that completes once the permit is usable
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        return RateLimiter.delay(reserve());
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerSecond / NANOS_PER_SECOND);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,17 @@
+package org.webscraper.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request could not complete before the deadline of the sweep or location it was made for.
+ */
+public class DeadlineExceededException extends IOException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
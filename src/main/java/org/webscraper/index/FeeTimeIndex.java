@@ -0,0 +1,226 @@
+package org.webscraper.index;
+
+import java.util.Arrays;
+
+/**
+ * Immutable restaurantId to (delivery fee, delivery time) index built for allocation-free lookups.
+ * Restaurant IDs are packed into one char arena, fees and times live in parallel primitive arrays, and an
+ * open-addressing table with linear probing maps ID hashes to entries. Once built an index is never modified, so
+ * any number of threads can read it while a {@link Builder} prepares the next snapshot; publish snapshots through a
+ * volatile field or another safe-publication mechanism.
+ */
+public final class FeeTimeIndex {
+    private static final int EMPTY = -1;
+    private static final FeeTimeIndex EMPTY_INDEX = new Builder(0).build();
+    private char[] keyArena;
+    private int[] keyOffsets;
+    private int[] keyHashes;
+    private double[] fees;
+    private int[] minutes;
+    private int[] slots;
+    private int size;
+
+    private FeeTimeIndex(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        keyArena = new char[capacity * 8];
+        keyOffsets = new int[capacity + 1];
+        keyHashes = new int[capacity];
+        fees = new double[capacity];
+        minutes = new int[capacity];
+        slots = newSlots(capacity);
+    }
+
+    /**
+     * Returns an index with no entries.
+     *
+     * @return the shared empty index
+     */
+    public static FeeTimeIndex empty() {
+        return EMPTY_INDEX;
+    }
+
+    /**
+     * Looks up a restaurant without allocating.
+     *
+     * @param restaurantId the restaurant's ID
+     * @return the entry number to pass to {@link #fee(int)} and {@link #minutes(int)}, or -1 if absent
+     */
+    public int indexOf(String restaurantId) {
+        int hash = mix(restaurantId.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (keyHashes[entry] == hash && keyEquals(entry, restaurantId)) {
+                return entry;
+            }
+        }
+    }
+
+    public boolean contains(String restaurantId) {
+        return indexOf(restaurantId) >= 0;
+    }
+
+    /**
+     * Returns the delivery fee of an entry.
+     *
+     * @param entry an entry number returned by {@link #indexOf(String)}
+     * @return the fee
+     */
+    public double fee(int entry) {
+        return fees[entry];
+    }
+
+    /**
+     * Returns the delivery time of an entry.
+     *
+     * @param entry an entry number returned by {@link #indexOf(String)}
+     * @return the delivery time in minutes
+     */
+    public int minutes(int entry) {
+        return minutes[entry];
+    }
+
+    /**
+     * Returns the restaurant ID of an entry, allocating a new String.
+     *
+     * @param entry an entry number between 0 and {@link #size()}
+     * @return the restaurant ID
+     */
+    public String restaurantId(int entry) {
+        return new String(keyArena, keyOffsets[entry], keyOffsets[entry + 1] - keyOffsets[entry]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean keyEquals(int entry, String restaurantId) {
+        int offset = keyOffsets[entry];
+        int length = keyOffsets[entry + 1] - offset;
+        if (length != restaurantId.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyArena[offset + i] != restaurantId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(String restaurantId, double fee, int time) {
+        int existing = indexOf(restaurantId);
+        if (existing >= 0) {
+            fees[existing] = fee;
+            minutes[existing] = time;
+            return;
+        }
+        if (size == fees.length) {
+            growEntries();
+        }
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        int offset = keyOffsets[size];
+        if (offset + restaurantId.length() > keyArena.length) {
+            keyArena = Arrays.copyOf(keyArena, Math.max(keyArena.length * 2, offset + restaurantId.length()));
+        }
+        restaurantId.getChars(0, restaurantId.length(), keyArena, offset);
+        keyOffsets[size + 1] = offset + restaurantId.length();
+        keyHashes[size] = mix(restaurantId.hashCode());
+        fees[size] = fee;
+        minutes[size] = time;
+        insertSlot(size);
+        size++;
+    }
+
+    private void insertSlot(int entry) {
+        int mask = slots.length - 1;
+        int slot = keyHashes[entry] & mask;
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry;
+    }
+
+    private void growEntries() {
+        int capacity = fees.length * 2;
+        keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+        keyHashes = Arrays.copyOf(keyHashes, capacity);
+        fees = Arrays.copyOf(fees, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+    }
+
+    private void rehash(int slotCount) {
+        slots = new int[slotCount];
+        Arrays.fill(slots, EMPTY);
+        for (int entry = 0; entry < size; entry++) {
+            insertSlot(entry);
+        }
+    }
+
+    private static int[] newSlots(int expectedSize) {
+        // Keep the table at most half full so probe sequences stay short
+        int[] slots = new int[Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    /**
+     * Spreads String.hashCode, which is cached by the String, so similar IDs land in different slots.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Collects entries for a new index snapshot. Not thread-safe, and not usable after {@link #build()}.
+     */
+    public static final class Builder {
+        private FeeTimeIndex index;
+
+        public Builder() {
+            this(1024);
+        }
+
+        /**
+         * Constructs a builder sized for the expected number of restaurants.
+         *
+         * @param expectedSize the expected number of entries
+         */
+        public Builder(int expectedSize) {
+            this.index = new FeeTimeIndex(expectedSize);
+        }
+
+        /**
+         * Adds or replaces a restaurant's entry.
+         *
+         * @param restaurantId the restaurant's ID
+         * @param fee          the delivery fee
+         * @param minutes      the delivery time in minutes
+         * @return this builder
+         */
+        public Builder put(String restaurantId, double fee, int minutes) {
+            if (index == null) {
+                throw new IllegalStateException("Index has already been built");
+            }
+            index.put(restaurantId, fee, minutes);
+            return this;
+        }
+
+        /**
+         * Finishes the snapshot.
+         *
+         * @return the immutable index
+         */
+        public FeeTimeIndex build() {
+            FeeTimeIndex built = index;
+            index = null;
+            return built;
+        }
+    }
+}
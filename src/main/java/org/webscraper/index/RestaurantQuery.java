@@ -0,0 +1,39 @@
+package org.webscraper.index;
+
+/**
+ * A filtered top-K query over the latest scrape results. Null filters match everything.
+ *
+ * @param cuisine   a cuisine name to match, case-insensitively
+ * @param promo     whether a promo must or must not be available
+ * @param minRating the minimum rating, inclusive
+ * @param maxFee    the maximum delivery fee, inclusive; restaurants without a fee never match
+ * @param sortBy    the ranking used to pick the top results
+ * @param limit     the maximum number of results
+ */
+public record RestaurantQuery(String cuisine, Boolean promo, Double minRating, Double maxFee, SortKey sortBy, int limit) {
+    /**
+     * Rankings for top-K queries.
+     */
+    public enum SortKey {
+        /** Cheapest delivery fee first; restaurants without a fee come last. */
+        FEE,
+        /** Fastest estimated delivery first. */
+        ETA,
+        /** Highest rating first. */
+        RATING
+    }
+
+    /**
+     * Validates and constructs a new RestaurantQuery.
+     *
+     * @throws IllegalArgumentException if the limit is not positive or the sort key is missing
+     */
+    public RestaurantQuery {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (sortBy == null) {
+            throw new IllegalArgumentException("Sort key is required");
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.webscraper.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.webscraper.model.RestaurantColumnStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable secondary indexes over one scrape's {@link RestaurantColumnStore}: bitmaps of rows per cuisine, promo
+ * availability, half-star rating bucket and S$0.50 fee bucket. A query ANDs the bitmaps of its filters, checks the
+ * exact bounds only on the boundary buckets, and keeps the top K matching rows in a bounded heap.
+ */
+public final class RestaurantQueryIndex {
+    private static final double RATING_BUCKET_WIDTH = 0.5;
+    private static final int RATING_BUCKETS = 11;
+    private static final double FEE_BUCKET_WIDTH = 0.5;
+    private static final int FEE_BUCKETS = 21;
+    private final RestaurantColumnStore store;
+    private final Map<String, BitSet> cuisines = new HashMap<>();
+    private final BitSet promoAvailable = new BitSet();
+    private final BitSet[] ratingBuckets = newBitSets(RATING_BUCKETS);
+    private final BitSet[] feeBuckets = newBitSets(FEE_BUCKETS);
+    private final BitSet all = new BitSet();
+
+    private RestaurantQueryIndex(RestaurantColumnStore store, ObjectMapper mapper) {
+        this.store = store;
+        int rows = store.size();
+        all.set(0, rows);
+        Map<String, List<String>> cuisineNamesByJson = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            // Cuisine is stored as raw JSON and repeats heavily, so each distinct value is parsed once
+            for (String cuisine : cuisineNamesByJson.computeIfAbsent(store.cuisine(row), json -> cuisineNames(mapper, json))) {
+                cuisines.computeIfAbsent(cuisine, name -> new BitSet()).set(row);
+            }
+            promoAvailable.set(row, store.isPromoAvailable(row));
+            ratingBuckets[ratingBucket(store.rating(row))].set(row);
+            if (store.hasEstimatedDeliveryFee(row)) {
+                feeBuckets[feeBucket(store.estimatedDeliveryFee(row))].set(row);
+            }
+        }
+    }
+
+    /**
+     * Builds the indexes for a completed scrape. The store must not change afterwards.
+     *
+     * @param store  the restaurants of the scrape
+     * @param mapper the mapper used to read the cuisine JSON
+     * @return the index
+     */
+    public static RestaurantQueryIndex build(RestaurantColumnStore store, ObjectMapper mapper) {
+        return new RestaurantQueryIndex(store, mapper);
+    }
+
+    /**
+     * Returns an index over no restaurants.
+     *
+     * @return an empty index
+     */
+    public static RestaurantQueryIndex empty() {
+        return new RestaurantQueryIndex(new RestaurantColumnStore(1), new ObjectMapper());
+    }
+
+    public RestaurantColumnStore store() {
+        return store;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Runs a query.
+     *
+     * @param query the filters, ranking and limit
+     * @return the matching rows of {@link #store()}, best first
+     */
+    public int[] query(RestaurantQuery query) {
+        BitSet candidates = (BitSet) all.clone();
+        if (query.cuisine() != null) {
+            candidates.and(cuisines.getOrDefault(query.cuisine().toLowerCase(Locale.ROOT), new BitSet()));
+        }
+        if (query.promo() != null) {
+            if (query.promo()) {
+                candidates.and(promoAvailable);
+            } else {
+                candidates.andNot(promoAvailable);
+            }
+        }
+        if (query.minRating() != null) {
+            candidates.and(union(ratingBuckets, ratingBucket(query.minRating()), RATING_BUCKETS - 1));
+        }
+        if (query.maxFee() != null) {
+            candidates.and(query.maxFee() < 0 ? new BitSet() : union(feeBuckets, 0, feeBucket(query.maxFee())));
+        }
+
+        Comparator<Integer> ranking = ranking(query.sortBy());
+        // Max-heap on the ranking, so the worst of the current top K is evicted first
+        PriorityQueue<Integer> top = new PriorityQueue<>(query.limit(), ranking.reversed());
+        forEach(candidates, row -> {
+            if (!matchesBounds(row, query)) {
+                return;
+            }
+            if (top.size() < query.limit()) {
+                top.add(row);
+            } else if (ranking.compare(row, top.peek()) < 0) {
+                top.poll();
+                top.add(row);
+            }
+        });
+        List<Integer> rows = new ArrayList<>(top);
+        rows.sort(ranking);
+        return rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Buckets only narrow the candidates down; the exact bounds are checked per row.
+     */
+    private boolean matchesBounds(int row, RestaurantQuery query) {
+        if (query.minRating() != null && store.rating(row) < query.minRating()) {
+            return false;
+        }
+        return query.maxFee() == null || store.estimatedDeliveryFee(row) <= query.maxFee();
+    }
+
+    private Comparator<Integer> ranking(RestaurantQuery.SortKey sortBy) {
+        Comparator<Integer> ranking = switch (sortBy) {
+            case FEE -> Comparator.<Integer, Boolean>comparing(row -> !store.hasEstimatedDeliveryFee(row))
+                    .thenComparingDouble(store::estimatedDeliveryFee);
+            case ETA -> Comparator.comparingInt(store::estimatedDeliveryTimeMinutes);
+            case RATING -> Comparator.comparingDouble((Integer row) -> store.rating(row)).reversed();
+        };
+        return ranking.thenComparingInt(Integer::intValue);
+    }
+
+    private static BitSet union(BitSet[] buckets, int from, int to) {
+        BitSet union = new BitSet();
+        for (int bucket = Math.max(0, from); bucket <= Math.min(buckets.length - 1, to); bucket++) {
+            union.or(buckets[bucket]);
+        }
+        return union;
+    }
+
+    private static void forEach(BitSet rows, IntConsumer action) {
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            action.accept(row);
+        }
+    }
+
+    private static int ratingBucket(double rating) {
+        return Math.max(0, Math.min(RATING_BUCKETS - 1, (int) Math.floor(rating / RATING_BUCKET_WIDTH)));
+    }
+
+    private static int feeBucket(double fee) {
+        return Math.max(0, Math.min(FEE_BUCKETS - 1, (int) Math.floor(fee / FEE_BUCKET_WIDTH)));
+    }
+
+    /**
+     * Extracts lower-cased cuisine names from the raw cuisine JSON, which holds strings in arrays or objects.
+     */
+    private static List<String> cuisineNames(ObjectMapper mapper, String json) {
+        List<String> names = new ArrayList<>();
+        try {
+            collectText(mapper.readTree(json), names);
+        } catch (IOException e) {
+            names.add(json.toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    private static void collectText(JsonNode node, List<String> names) {
+        if (node.isTextual()) {
+            if (!node.asText().isBlank()) {
+                names.add(node.asText().trim().toLowerCase(Locale.ROOT));
+            }
+        } else {
+            node.forEach(child -> collectText(child, names));
+        }
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+}
@@ -0,0 +1,230 @@
+package org.webscraper.index;
+
+import org.webscraper.model.BoundingBox;
+import org.webscraper.model.Restaurant;
+import org.webscraper.utils.GeoMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory grid index of restaurants by position, filled incrementally as pages are decoded.
+ * The world is cut into square cells of a fixed number of degrees, and each cell holds a copy-on-write array of its
+ * restaurants. Queries read the arrays without locking, so they run at full speed while a sweep keeps adding
+ * restaurants; writers serialize on the index. A restaurant added again under the same ID replaces the old entry,
+ * moving cells if its position changed.
+ */
+public class SpatialIndex implements Consumer<Restaurant> {
+    private static final double DEFAULT_CELL_DEGREES = 0.01; // about 1.1 km
+    private static final Restaurant[] NO_RESTAURANTS = new Restaurant[0];
+    private final double cellDegrees;
+    private final Map<Long, Restaurant[]> cells = new ConcurrentHashMap<>();
+    private final Map<String, Restaurant> restaurantsById = new ConcurrentHashMap<>();
+    private volatile int minRow = Integer.MAX_VALUE;
+    private volatile int maxRow = Integer.MIN_VALUE;
+    private volatile int minColumn = Integer.MAX_VALUE;
+    private volatile int maxColumn = Integer.MIN_VALUE;
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_DEGREES);
+    }
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param cellDegrees the edge of a grid cell in degrees; roughly the typical query radius works well
+     */
+    public SpatialIndex(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * Adds or replaces a restaurant.
+     *
+     * @param restaurant the restaurant to index
+     */
+    public synchronized void add(Restaurant restaurant) {
+        Restaurant previous = restaurantsById.put(restaurant.restaurantId(), restaurant);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+        int row = row(restaurant.latitude());
+        int column = column(restaurant.longitude());
+        cells.merge(key(row, column), new Restaurant[]{restaurant}, (existing, added) -> {
+            Restaurant[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = restaurant;
+            return grown;
+        });
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minColumn = Math.min(minColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+    }
+
+    @Override
+    public void accept(Restaurant restaurant) {
+        add(restaurant);
+    }
+
+    public int size() {
+        return restaurantsById.size();
+    }
+
+    /**
+     * Finds the restaurants within a radius that match a filter.
+     *
+     * @param latitude  the latitude of the centre
+     * @param longitude the longitude of the centre
+     * @param radiusKm  the radius in kilometres
+     * @param filter    the attribute filter, for example on fee or rating
+     * @return the matching restaurants, nearest first
+     */
+    public List<Restaurant> withinRadius(double latitude, double longitude, double radiusKm, Predicate<? super Restaurant> filter) {
+        double latitudeDelta = GeoMath.kmToLatitudeDegrees(radiusKm);
+        double longitudeDelta = GeoMath.kmToLongitudeDegrees(radiusKm, latitude);
+        List<Restaurant> matches = new ArrayList<>();
+        forEachCell(row(latitude - latitudeDelta), row(latitude + latitudeDelta),
+                column(longitude - longitudeDelta), column(longitude + longitudeDelta), restaurant -> {
+                    if (GeoMath.haversineKm(latitude, longitude, restaurant.latitude(), restaurant.longitude()) <= radiusKm
+                            && filter.test(restaurant)) {
+                        matches.add(restaurant);
+                    }
+                });
+        matches.sort(byDistanceFrom(latitude, longitude));
+        return matches;
+    }
+
+    /**
+     * Finds the restaurants inside a bounding box that match a filter.
+     *
+     * @param box    the box to search
+     * @param filter the attribute filter
+     * @return the matching restaurants in no particular order
+     */
+    public List<Restaurant> withinBoundingBox(BoundingBox box, Predicate<? super Restaurant> filter) {
+        List<Restaurant> matches = new ArrayList<>();
+        forEachCell(row(box.minLatitude()), row(box.maxLatitude()), column(box.minLongitude()), column(box.maxLongitude()),
+                restaurant -> {
+                    if (box.contains(restaurant.latitude(), restaurant.longitude()) && filter.test(restaurant)) {
+                        matches.add(restaurant);
+                    }
+                });
+        return matches;
+    }
+
+    /**
+     * Finds the k restaurants nearest to a point that match a filter. Cells are searched in rings around the point,
+     * stopping once no unvisited cell can hold anything closer than the k-th match found so far.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @param k         the number of restaurants wanted
+     * @param filter    the attribute filter
+     * @return up to k matching restaurants, nearest first
+     */
+    public List<Restaurant> nearest(double latitude, double longitude, int k, Predicate<? super Restaurant> filter) {
+        if (k <= 0 || restaurantsById.isEmpty()) {
+            return List.of();
+        }
+        // Max-heap on distance holding the best k so far
+        PriorityQueue<Restaurant> best = new PriorityQueue<>(k, byDistanceFrom(latitude, longitude).reversed());
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        int maxRing = Math.max(Math.max(Math.abs(centerRow - minRow), Math.abs(centerRow - maxRow)),
+                Math.max(Math.abs(centerColumn - minColumn), Math.abs(centerColumn - maxColumn)));
+        Consumer<Restaurant> candidate = restaurant -> {
+            if (!filter.test(restaurant)) {
+                return;
+            }
+            if (best.size() < k) {
+                best.add(restaurant);
+            } else if (distance(latitude, longitude, restaurant) < distance(latitude, longitude, best.peek())) {
+                best.poll();
+                best.add(restaurant);
+            }
+        };
+        for (int ring = 0; ring <= maxRing; ring++) {
+            forEachRingCell(centerRow, centerColumn, ring, candidate);
+            if (best.size() == k
+                    && distanceOutsideRing(latitude, longitude, centerRow, centerColumn, ring) > distance(latitude, longitude, best.peek())) {
+                break;
+            }
+        }
+        List<Restaurant> nearest = new ArrayList<>(best);
+        nearest.sort(byDistanceFrom(latitude, longitude));
+        return nearest;
+    }
+
+    private void forEachCell(int fromRow, int toRow, int fromColumn, int toColumn, Consumer<Restaurant> action) {
+        for (int row = Math.max(fromRow, minRow); row <= Math.min(toRow, maxRow); row++) {
+            for (int column = Math.max(fromColumn, minColumn); column <= Math.min(toColumn, maxColumn); column++) {
+                for (Restaurant restaurant : cells.getOrDefault(key(row, column), NO_RESTAURANTS)) {
+                    action.accept(restaurant);
+                }
+            }
+        }
+    }
+
+    private void forEachRingCell(int centerRow, int centerColumn, int ring, Consumer<Restaurant> action) {
+        if (ring == 0) {
+            forEachCell(centerRow, centerRow, centerColumn, centerColumn, action);
+            return;
+        }
+        // Top and bottom rows of the ring, then the remaining cells of its left and right columns
+        forEachCell(centerRow - ring, centerRow - ring, centerColumn - ring, centerColumn + ring, action);
+        forEachCell(centerRow + ring, centerRow + ring, centerColumn - ring, centerColumn + ring, action);
+        forEachCell(centerRow - ring + 1, centerRow + ring - 1, centerColumn - ring, centerColumn - ring, action);
+        forEachCell(centerRow - ring + 1, centerRow + ring - 1, centerColumn + ring, centerColumn + ring, action);
+    }
+
+    /**
+     * Lower bound on the distance from the point to anything outside the square of rings searched so far: the
+     * distance to the nearest edge of the square, where the distance to a meridian is asin(sin Δλ · cos φ).
+     */
+    private double distanceOutsideRing(double latitude, double longitude, int centerRow, int centerColumn, int ring) {
+        double south = latitude - (centerRow - ring) * cellDegrees;
+        double north = (centerRow + ring + 1) * cellDegrees - latitude;
+        double west = longitude - (centerColumn - ring) * cellDegrees;
+        double east = (centerColumn + ring + 1) * cellDegrees - longitude;
+        double latitudeKm = Math.toRadians(Math.min(south, north)) * GeoMath.EARTH_RADIUS_KM;
+        double longitudeRadians = Math.toRadians(Math.min(Math.min(west, east), 90));
+        double longitudeKm = Math.asin(Math.sin(longitudeRadians) * Math.cos(Math.toRadians(latitude))) * GeoMath.EARTH_RADIUS_KM;
+        return Math.min(latitudeKm, longitudeKm);
+    }
+
+    private void removeFromCell(Restaurant restaurant) {
+        cells.computeIfPresent(key(row(restaurant.latitude()), column(restaurant.longitude())), (key, existing) -> {
+            Restaurant[] remaining = Arrays.stream(existing)
+                    .filter(entry -> !entry.restaurantId().equals(restaurant.restaurantId()))
+                    .toArray(Restaurant[]::new);
+            return remaining.length == 0 ? null : remaining;
+        });
+    }
+
+    private static Comparator<Restaurant> byDistanceFrom(double latitude, double longitude) {
+        return Comparator.comparingDouble(restaurant -> distance(latitude, longitude, restaurant));
+    }
+
+    private static double distance(double latitude, double longitude, Restaurant restaurant) {
+        return GeoMath.haversineKm(latitude, longitude, restaurant.latitude(), restaurant.longitude());
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,31 @@
+package org.webscraper.model;
+
+/**
+ * A record representing an axis-aligned latitude/longitude rectangle.
+ */
+public record BoundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+
+    /**
+     * Validates and constructs a new BoundingBox.
+     *
+     * @throws IllegalArgumentException if a minimum exceeds its maximum
+     */
+    public BoundingBox {
+        if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new IllegalArgumentException("Bounding box minimums must not exceed maximums");
+        }
+    }
+
+    public double centerLatitude() {
+        return (minLatitude + maxLatitude) / 2;
+    }
+
+    public double centerLongitude() {
+        return (minLongitude + maxLongitude) / 2;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+                && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+}
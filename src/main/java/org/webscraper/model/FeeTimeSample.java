@@ -0,0 +1,15 @@
+package org.webscraper.model;
+
+import java.util.Optional;
+
+/**
+ * One observation of a restaurant's delivery fee and delivery time.
+ *
+ * @param restaurantId                 the restaurant's ID
+ * @param timestampMillis              when the observation was made, in epoch milliseconds
+ * @param estimatedDeliveryFee         the fee, if the restaurant showed one
+ * @param estimatedDeliveryTimeMinutes the delivery time in minutes
+ */
+public record FeeTimeSample(String restaurantId, long timestampMillis, Optional<Double> estimatedDeliveryFee,
+                            int estimatedDeliveryTimeMinutes) {
+}
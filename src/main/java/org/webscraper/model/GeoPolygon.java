@@ -0,0 +1,59 @@
+package org.webscraper.model;
+
+import java.util.List;
+
+/**
+ * A record representing a simple (non self-intersecting) polygon of geographic vertices.
+ * The ring is closed implicitly; the first vertex does not need to be repeated at the end.
+ */
+public record GeoPolygon(List<Location> vertices) {
+
+    /**
+     * Validates and constructs a new GeoPolygon.
+     *
+     * @throws IllegalArgumentException if fewer than three vertices are given
+     */
+    public GeoPolygon {
+        if (vertices == null || vertices.size() < 3) {
+            throw new IllegalArgumentException("A polygon needs at least three vertices");
+        }
+        vertices = List.copyOf(vertices);
+    }
+
+    /**
+     * Tests whether a point lies inside the polygon using ray casting.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @return true if the point is inside
+     */
+    public boolean contains(double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = vertices.size() - 1; i < vertices.size(); j = i++) {
+            Location a = vertices.get(i);
+            Location b = vertices.get(j);
+            if ((a.latitude() > latitude) != (b.latitude() > latitude)
+                    && longitude < (b.longitude() - a.longitude()) * (latitude - a.latitude()) / (b.latitude() - a.latitude()) + a.longitude()) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Computes the smallest bounding box enclosing every vertex.
+     *
+     * @return the polygon's bounding box
+     */
+    public BoundingBox boundingBox() {
+        double minLat = Double.MAX_VALUE, minLng = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (Location vertex : vertices) {
+            minLat = Math.min(minLat, vertex.latitude());
+            minLng = Math.min(minLng, vertex.longitude());
+            maxLat = Math.max(maxLat, vertex.latitude());
+            maxLng = Math.max(maxLng, vertex.longitude());
+        }
+        return new BoundingBox(minLat, minLng, maxLat, maxLng);
+    }
+}
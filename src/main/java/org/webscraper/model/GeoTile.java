@@ -0,0 +1,29 @@
+package org.webscraper.model;
+
+import java.util.List;
+
+/**
+ * A record representing one cell of an adaptive quadtree over a scraping region.
+ *
+ * @param bounds the rectangle the tile covers
+ * @param depth  how many times the tile's root has been subdivided to produce it
+ */
+public record GeoTile(BoundingBox bounds, int depth) {
+
+    /**
+     * Splits the tile into its four equally sized quadrants.
+     *
+     * @return the south-west, south-east, north-west and north-east sub-tiles
+     */
+    public List<GeoTile> split() {
+        double midLat = bounds.centerLatitude();
+        double midLng = bounds.centerLongitude();
+        int childDepth = depth + 1;
+        return List.of(
+                new GeoTile(new BoundingBox(bounds.minLatitude(), bounds.minLongitude(), midLat, midLng), childDepth),
+                new GeoTile(new BoundingBox(bounds.minLatitude(), midLng, midLat, bounds.maxLongitude()), childDepth),
+                new GeoTile(new BoundingBox(midLat, bounds.minLongitude(), bounds.maxLatitude(), midLng), childDepth),
+                new GeoTile(new BoundingBox(midLat, midLng, bounds.maxLatitude(), bounds.maxLongitude()), childDepth)
+        );
+    }
+}
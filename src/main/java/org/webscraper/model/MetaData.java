@@ -1,82 +1,87 @@
 package org.webscraper.model;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Class responsible for maintaining metadata counts for various attributes of restaurant listings.
  * This includes counts for null and non-null values for multiple fields.
+ * Counters are {@link LongAdder}s indexed by {@link Field}, so page workers can record into one instance
+ * concurrently, and instances for different locations can be merged into a run-wide aggregate.
  */
 public class MetaData {
-    private String location;
-    private int totalCount;
-    private int nameNullCount;
-    private int nameNotNullCount;
-    private int cuisineNullCount;
-    private int cuisineNotNullCount;
-    private int ratingNullCount;
-    private int ratingNotNullCount;
-    private int estimatedDeliveryTimeNullCount;
-    private int estimatedDeliveryTimeNotNullCount;
-    private int distanceNullCount;
-    private int distanceNotNullCount;
-    private int isPromoAvailableNullCount;
-    private int isPromoAvailableNotNullCount;
-    private int promoDescriptionNullCount;
-    private int promoDescriptionNotNullCount;
-    private int imageLinkNullCount;
-    private int imageLinkNotNullCount;
-    private int restaurantIdNullCount;
-    private int restaurantIdNotNullCount;
-    private int latitudeNullCount;
-    private int latitudeNotNullCount;
-    private int longitudeNullCount;
-    private int longitudeNotNullCount;
-    private int estimatedDeliveryFeeNullCount;
-    private int estimatedDeliveryFeeNotNullCount;
-    private int closingSoonTextNullCount;
-    private int closingSoonTextNotNullCount;
+    /**
+     * The restaurant fields whose null and non-null values are counted.
+     */
+    public enum Field {
+        NAME,
+        CUISINE,
+        RATING,
+        ESTIMATED_DELIVERY_TIME,
+        DISTANCE,
+        IS_PROMO_AVAILABLE,
+        PROMO_DESCRIPTION,
+        IMAGE_LINK,
+        RESTAURANT_ID,
+        LATITUDE,
+        LONGITUDE,
+        ESTIMATED_DELIVERY_FEE,
+        CLOSING_SOON_TEXT
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    private final String location;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder[] nullCounts = newCounters();
+    private final LongAdder[] notNullCounts = newCounters();
 
     public MetaData(String location) {
         this.location = location;
     }
 
-
     public void incrementTotalCount() {
-        totalCount++;
-    }
-
-    public void incrementNullCount(String field) {
-        switch (field) {
-            case "name" -> nameNullCount++;
-            case "cuisine" -> cuisineNullCount++;
-            case "rating" -> ratingNullCount++;
-            case "estimatedDeliveryTimeMinutes" -> estimatedDeliveryTimeNullCount++;
-            case "distance" -> distanceNullCount++;
-            case "isPromoAvailable" -> isPromoAvailableNullCount++;
-            case "promoDescription" -> promoDescriptionNullCount++;
-            case "imageLink" -> imageLinkNullCount++;
-            case "restaurantId" -> restaurantIdNullCount++;
-            case "latitude" -> latitudeNullCount++;
-            case "longitude" -> longitudeNullCount++;
-            case "estimatedDeliveryFee" -> estimatedDeliveryFeeNullCount++;
-            case "closingSoonText" -> closingSoonTextNullCount++;
-        }
+        totalCount.increment();
+    }
+
+    public void incrementNullCount(Field field) {
+        nullCounts[field.ordinal()].increment();
+    }
+
+    public void incrementNotNullCount(Field field) {
+        notNullCounts[field.ordinal()].increment();
     }
 
-    public void incrementNotNullCount(String field) {
-        switch (field) {
-            case "name" -> nameNotNullCount++;
-            case "cuisine" -> cuisineNotNullCount++;
-            case "rating" -> ratingNotNullCount++;
-            case "estimatedDeliveryTimeMinutes" -> estimatedDeliveryTimeNotNullCount++;
-            case "distance" -> distanceNotNullCount++;
-            case "isPromoAvailable" -> isPromoAvailableNotNullCount++;
-            case "promoDescription" -> promoDescriptionNotNullCount++;
-            case "imageLink" -> imageLinkNotNullCount++;
-            case "restaurantId" -> restaurantIdNotNullCount++;
-            case "latitude" -> latitudeNotNullCount++;
-            case "longitude" -> longitudeNotNullCount++;
-            case "estimatedDeliveryFee" -> estimatedDeliveryFeeNotNullCount++;
-            case "closingSoonText" -> closingSoonTextNotNullCount++;
+    /**
+     * Counts one value of a field as null or non-null.
+     *
+     * @param field   the field
+     * @param present whether the value was present
+     */
+    public void record(Field field, boolean present) {
+        (present ? notNullCounts : nullCounts)[field.ordinal()].increment();
+    }
+
+    /**
+     * Adds every counter of another instance to this one. Safe to call while either side is still being updated;
+     * the result then reflects the other side at some point during the merge.
+     *
+     * @param other the metadata to add
+     * @return this instance
+     */
+    public MetaData merge(MetaData other) {
+        totalCount.add(other.totalCount.sum());
+        for (int i = 0; i < FIELDS.length; i++) {
+            nullCounts[i].add(other.nullCounts[i].sum());
+            notNullCounts[i].add(other.notNullCounts[i].sum());
         }
+        return this;
+    }
+
+    public long getNullCount(Field field) {
+        return nullCounts[field.ordinal()].sum();
+    }
+
+    public long getNotNullCount(Field field) {
+        return notNullCounts[field.ordinal()].sum();
     }
 
     public String getLocation() {
@@ -84,111 +89,118 @@ public class MetaData {
     }
 
     public int getTotalCount() {
-        return totalCount;
+        return (int) totalCount.sum();
     }
 
     public int getNameNullCount() {
-        return nameNullCount;
+        return (int) getNullCount(Field.NAME);
     }
 
     public int getNameNotNullCount() {
-        return nameNotNullCount;
+        return (int) getNotNullCount(Field.NAME);
     }
 
     public int getCuisineNullCount() {
-        return cuisineNullCount;
+        return (int) getNullCount(Field.CUISINE);
     }
 
     public int getCuisineNotNullCount() {
-        return cuisineNotNullCount;
+        return (int) getNotNullCount(Field.CUISINE);
     }
 
     public int getRatingNullCount() {
-        return ratingNullCount;
+        return (int) getNullCount(Field.RATING);
     }
 
     public int getRatingNotNullCount() {
-        return ratingNotNullCount;
+        return (int) getNotNullCount(Field.RATING);
     }
 
     public int getEstimatedDeliveryTimeNullCount() {
-        return estimatedDeliveryTimeNullCount;
+        return (int) getNullCount(Field.ESTIMATED_DELIVERY_TIME);
     }
 
     public int getEstimatedDeliveryTimeNotNullCount() {
-        return estimatedDeliveryTimeNotNullCount;
+        return (int) getNotNullCount(Field.ESTIMATED_DELIVERY_TIME);
     }
 
     public int getDistanceNullCount() {
-        return distanceNullCount;
+        return (int) getNullCount(Field.DISTANCE);
     }
 
     public int getDistanceNotNullCount() {
-        return distanceNotNullCount;
+        return (int) getNotNullCount(Field.DISTANCE);
     }
 
     public int getIsPromoAvailableNullCount() {
-        return isPromoAvailableNullCount;
+        return (int) getNullCount(Field.IS_PROMO_AVAILABLE);
     }
 
     public int getIsPromoAvailableNotNullCount() {
-        return isPromoAvailableNotNullCount;
+        return (int) getNotNullCount(Field.IS_PROMO_AVAILABLE);
     }
 
     public int getPromoDescriptionNullCount() {
-        return promoDescriptionNullCount;
+        return (int) getNullCount(Field.PROMO_DESCRIPTION);
     }
 
     public int getPromoDescriptionNotNullCount() {
-        return promoDescriptionNotNullCount;
+        return (int) getNotNullCount(Field.PROMO_DESCRIPTION);
     }
 
     public int getImageLinkNullCount() {
-        return imageLinkNullCount;
+        return (int) getNullCount(Field.IMAGE_LINK);
     }
 
     public int getImageLinkNotNullCount() {
-        return imageLinkNotNullCount;
+        return (int) getNotNullCount(Field.IMAGE_LINK);
     }
 
     public int getRestaurantIdNullCount() {
-        return restaurantIdNullCount;
+        return (int) getNullCount(Field.RESTAURANT_ID);
     }
 
     public int getRestaurantIdNotNullCount() {
-        return restaurantIdNotNullCount;
+        return (int) getNotNullCount(Field.RESTAURANT_ID);
     }
 
     public int getLatitudeNullCount() {
-        return latitudeNullCount;
+        return (int) getNullCount(Field.LATITUDE);
     }
 
     public int getLatitudeNotNullCount() {
-        return latitudeNotNullCount;
+        return (int) getNotNullCount(Field.LATITUDE);
     }
 
     public int getLongitudeNullCount() {
-        return longitudeNullCount;
+        return (int) getNullCount(Field.LONGITUDE);
     }
 
     public int getLongitudeNotNullCount() {
-        return longitudeNotNullCount;
+        return (int) getNotNullCount(Field.LONGITUDE);
     }
 
     public int getEstimatedDeliveryFeeNullCount() {
-        return estimatedDeliveryFeeNullCount;
+        return (int) getNullCount(Field.ESTIMATED_DELIVERY_FEE);
     }
 
     public int getEstimatedDeliveryFeeNotNullCount() {
-        return estimatedDeliveryFeeNotNullCount;
+        return (int) getNotNullCount(Field.ESTIMATED_DELIVERY_FEE);
     }
 
     public int getClosingSoonTextNullCount() {
-        return closingSoonTextNullCount;
+        return (int) getNullCount(Field.CLOSING_SOON_TEXT);
     }
 
     public int getClosingSoonTextNotNullCount() {
-        return closingSoonTextNotNullCount;
+        return (int) getNotNullCount(Field.CLOSING_SOON_TEXT);
     }
 
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[FIELDS.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
 }
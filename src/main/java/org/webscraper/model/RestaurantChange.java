@@ -0,0 +1,17 @@
+package org.webscraper.model;
+
+/**
+ * A change to a restaurant since the previous run, as persisted in a delta file.
+ *
+ * @param type         what happened to the restaurant
+ * @param restaurantId the restaurant's ID
+ * @param restaurant   the restaurant as scraped in this run, or null when it disappeared
+ */
+public record RestaurantChange(Type type, String restaurantId, Restaurant restaurant) {
+    /**
+     * Kinds of change between two runs.
+     */
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+}
@@ -0,0 +1,340 @@
+package org.webscraper.model;
+
+import org.webscraper.utils.StringDictionary;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Compact in-memory container for scraped restaurants, laid out as struct-of-arrays.
+ * Numeric fields live in primitive arrays, repeated strings such as cuisine JSON are dictionary coded, and the
+ * optional fields are tracked in presence bitmaps instead of Optional wrappers, so a country-scale result costs
+ * a handful of arrays rather than one object graph per restaurant.
+ * Appends are synchronized; reads are meant to happen once appending has finished.
+ */
+public class RestaurantColumnStore implements Consumer<Restaurant> {
+    private static final int INITIAL_CAPACITY = 1024;
+    private final StringDictionary cuisines = new StringDictionary();
+    private final StringDictionary promoDescriptions = new StringDictionary();
+    private final StringDictionary closingSoonTexts = new StringDictionary();
+    private final BitSet promoAvailable = new BitSet();
+    private final BitSet promoDescriptionPresent = new BitSet();
+    private final BitSet feePresent = new BitSet();
+    private final BitSet closingSoonTextPresent = new BitSet();
+    private String[] names;
+    private String[] restaurantIds;
+    private String[] imageLinks;
+    private int[] cuisineCodes;
+    private int[] promoDescriptionCodes;
+    private int[] closingSoonTextCodes;
+    private int[] deliveryTimes;
+    private double[] ratings;
+    private double[] distances;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] fees;
+    private int size;
+
+    public RestaurantColumnStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store sized for the expected number of restaurants.
+     *
+     * @param initialCapacity the number of rows to allocate up front
+     */
+    public RestaurantColumnStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        names = new String[capacity];
+        restaurantIds = new String[capacity];
+        imageLinks = new String[capacity];
+        cuisineCodes = new int[capacity];
+        promoDescriptionCodes = new int[capacity];
+        closingSoonTextCodes = new int[capacity];
+        deliveryTimes = new int[capacity];
+        ratings = new double[capacity];
+        distances = new double[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        fees = new double[capacity];
+    }
+
+    /**
+     * Appends a restaurant.
+     *
+     * @param restaurant the restaurant to store
+     * @return the row the restaurant was stored at
+     */
+    public synchronized int add(Restaurant restaurant) {
+        if (size == names.length) {
+            grow();
+        }
+        int row = size;
+        names[row] = restaurant.name();
+        restaurantIds[row] = restaurant.restaurantId();
+        imageLinks[row] = restaurant.imageLink();
+        cuisineCodes[row] = cuisines.encode(restaurant.cuisine());
+        deliveryTimes[row] = restaurant.estimatedDeliveryTimeMinutes();
+        ratings[row] = restaurant.rating();
+        distances[row] = restaurant.distance();
+        latitudes[row] = restaurant.latitude();
+        longitudes[row] = restaurant.longitude();
+        promoAvailable.set(row, restaurant.isPromoAvailable());
+        restaurant.promoDescription().ifPresent(description -> {
+            promoDescriptionPresent.set(row);
+            promoDescriptionCodes[row] = promoDescriptions.encode(description);
+        });
+        restaurant.estimatedDeliveryFee().ifPresent(fee -> {
+            feePresent.set(row);
+            fees[row] = fee;
+        });
+        restaurant.closingSoonText().ifPresent(text -> {
+            closingSoonTextPresent.set(row);
+            closingSoonTextCodes[row] = closingSoonTexts.encode(text);
+        });
+        size++;
+        return row;
+    }
+
+    @Override
+    public void accept(Restaurant restaurant) {
+        add(restaurant);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public String name(int row) {
+        return names[checkRow(row)];
+    }
+
+    public String restaurantId(int row) {
+        return restaurantIds[checkRow(row)];
+    }
+
+    public String cuisine(int row) {
+        return cuisines.decode(cuisineCodes[checkRow(row)]);
+    }
+
+    public double rating(int row) {
+        return ratings[checkRow(row)];
+    }
+
+    public int estimatedDeliveryTimeMinutes(int row) {
+        return deliveryTimes[checkRow(row)];
+    }
+
+    public double distance(int row) {
+        return distances[checkRow(row)];
+    }
+
+    public double latitude(int row) {
+        return latitudes[checkRow(row)];
+    }
+
+    public double longitude(int row) {
+        return longitudes[checkRow(row)];
+    }
+
+    public boolean isPromoAvailable(int row) {
+        return promoAvailable.get(checkRow(row));
+    }
+
+    public String imageLink(int row) {
+        return imageLinks[checkRow(row)];
+    }
+
+    public boolean hasEstimatedDeliveryFee(int row) {
+        return feePresent.get(checkRow(row));
+    }
+
+    /**
+     * Returns the delivery fee of a row without boxing it.
+     *
+     * @param row the row
+     * @return the fee, or 0 when {@link #hasEstimatedDeliveryFee(int)} is false
+     */
+    public double estimatedDeliveryFee(int row) {
+        return fees[checkRow(row)];
+    }
+
+    /**
+     * Returns the promo description of a row.
+     *
+     * @param row the row
+     * @return the description, or null when the restaurant had none
+     */
+    public String promoDescription(int row) {
+        return promoDescriptionPresent.get(checkRow(row)) ? promoDescriptions.decode(promoDescriptionCodes[row]) : null;
+    }
+
+    /**
+     * Returns the closing-soon text of a row.
+     *
+     * @param row the row
+     * @return the text, or null when the restaurant had none
+     */
+    public String closingSoonText(int row) {
+        return closingSoonTextPresent.get(checkRow(row)) ? closingSoonTexts.decode(closingSoonTextCodes[row]) : null;
+    }
+
+    /**
+     * Materializes a row as a Restaurant record, for callers that need the object form.
+     *
+     * @param row the row
+     * @return a new Restaurant equal to the one that was added
+     */
+    public Restaurant toRestaurant(int row) {
+        return new Restaurant(
+                name(row),
+                cuisine(row),
+                rating(row),
+                estimatedDeliveryTimeMinutes(row),
+                distance(row),
+                isPromoAvailable(row),
+                Optional.ofNullable(promoDescription(row)),
+                imageLink(row),
+                restaurantId(row),
+                latitude(row),
+                longitude(row),
+                hasEstimatedDeliveryFee(row) ? Optional.of(estimatedDeliveryFee(row)) : Optional.empty(),
+                Optional.ofNullable(closingSoonText(row))
+        );
+    }
+
+    /**
+     * Returns a cursor positioned before the first row.
+     *
+     * @return a new flyweight view over this store
+     */
+    public View view() {
+        return new View();
+    }
+
+    /**
+     * Visits every row through a single reused view, allocating nothing per restaurant.
+     * The view must not be retained beyond the callback.
+     *
+     * @param action the action invoked for each row in insertion order
+     */
+    public void forEach(Consumer<? super View> action) {
+        View view = new View();
+        int rows = size();
+        for (int row = 0; row < rows; row++) {
+            action.accept(view.moveTo(row));
+        }
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + size + " restaurants");
+        }
+        return row;
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        restaurantIds = Arrays.copyOf(restaurantIds, capacity);
+        imageLinks = Arrays.copyOf(imageLinks, capacity);
+        cuisineCodes = Arrays.copyOf(cuisineCodes, capacity);
+        promoDescriptionCodes = Arrays.copyOf(promoDescriptionCodes, capacity);
+        closingSoonTextCodes = Arrays.copyOf(closingSoonTextCodes, capacity);
+        deliveryTimes = Arrays.copyOf(deliveryTimes, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        fees = Arrays.copyOf(fees, capacity);
+    }
+
+    /**
+     * Flyweight view of one row, mirroring the accessors of {@link Restaurant}.
+     * A single instance is moved across rows, so reading a store allocates no per-restaurant objects.
+     */
+    public final class View {
+        private int row = -1;
+
+        private View() {
+        }
+
+        /**
+         * Positions the view on a row.
+         *
+         * @param row the row to view
+         * @return this view
+         */
+        public View moveTo(int row) {
+            this.row = checkRow(row);
+            return this;
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public String name() {
+            return RestaurantColumnStore.this.name(row);
+        }
+
+        public String cuisine() {
+            return RestaurantColumnStore.this.cuisine(row);
+        }
+
+        public double rating() {
+            return RestaurantColumnStore.this.rating(row);
+        }
+
+        public int estimatedDeliveryTimeMinutes() {
+            return RestaurantColumnStore.this.estimatedDeliveryTimeMinutes(row);
+        }
+
+        public double distance() {
+            return RestaurantColumnStore.this.distance(row);
+        }
+
+        public boolean isPromoAvailable() {
+            return RestaurantColumnStore.this.isPromoAvailable(row);
+        }
+
+        public String promoDescription() {
+            return RestaurantColumnStore.this.promoDescription(row);
+        }
+
+        public String imageLink() {
+            return RestaurantColumnStore.this.imageLink(row);
+        }
+
+        public String restaurantId() {
+            return RestaurantColumnStore.this.restaurantId(row);
+        }
+
+        public double latitude() {
+            return RestaurantColumnStore.this.latitude(row);
+        }
+
+        public double longitude() {
+            return RestaurantColumnStore.this.longitude(row);
+        }
+
+        public boolean hasEstimatedDeliveryFee() {
+            return RestaurantColumnStore.this.hasEstimatedDeliveryFee(row);
+        }
+
+        public double estimatedDeliveryFee() {
+            return RestaurantColumnStore.this.estimatedDeliveryFee(row);
+        }
+
+        public String closingSoonText() {
+            return RestaurantColumnStore.this.closingSoonText(row);
+        }
+
+        public Restaurant toRestaurant() {
+            return RestaurantColumnStore.this.toRestaurant(row);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.webscraper.model;
+
+/**
+ * An event emitted by a streaming scrape, in the order pages complete.
+ * Restaurants arrive as soon as their page has been decoded; a location's metadata arrives once its last page is done.
+ */
+public sealed interface ScrapeEvent permits ScrapeEvent.RestaurantScraped, ScrapeEvent.LocationCompleted, ScrapeEvent.LocationFailed {
+
+    /**
+     * A restaurant decoded from a page of the given location. Restaurants are de-duplicated within a location only.
+     */
+    record RestaurantScraped(String location, Restaurant restaurant) implements ScrapeEvent {
+    }
+
+    /**
+     * All pages of a location have been processed.
+     */
+    record LocationCompleted(MetaData metaData) implements ScrapeEvent {
+    }
+
+    /**
+     * A location failed; restaurants already emitted for it remain valid.
+     */
+    record LocationFailed(String location, Throwable cause) implements ScrapeEvent {
+    }
+}
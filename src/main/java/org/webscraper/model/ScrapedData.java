@@ -7,13 +7,17 @@ import java.util.Set;
 /**
  * Record that encapsulates a collection of Restaurant objects and associated MetaData.
  * It serves as a container for data scraped from a source, organizing both the results and their metadata.
+ * Partial data holds the pages scraped before a deadline cut the location short.
  */
-public record ScrapedData(Set<Restaurant> restaurantSet, MetaData metaData) {
+public record ScrapedData(Set<Restaurant> restaurantSet, MetaData metaData, boolean partial) {
     /**
-     * Creates a new instance of ScrapedData.
+     * Creates a new instance of complete ScrapedData.
      *
      * @param restaurantSet A set of Restaurant objects, representing the scraped data.
      * @param metaData MetaData associated with the scraping process, capturing details like counts of null and non-null values.
      */
+    public ScrapedData(Set<Restaurant> restaurantSet, MetaData metaData) {
+        this(restaurantSet, metaData, false);
+    }
 }
 
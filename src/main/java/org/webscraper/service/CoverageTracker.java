@@ -0,0 +1,215 @@
+package org.webscraper.service;
+
+import org.webscraper.model.BoundingBox;
+import org.webscraper.model.GeoTile;
+import org.webscraper.model.Payload;
+import org.webscraper.model.Restaurant;
+import org.webscraper.model.ScrapedData;
+import org.webscraper.utils.GeoMath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks which parts of a region have already been covered by completed scrapes.
+ * Every merchant carries its distance from the scraped point, so a scrape that was not truncated by the
+ * result cap is taken to have covered a disc reaching its farthest merchant. Pending payloads whose own
+ * area lies inside such a disc would only return restaurants that are already known and can be skipped.
+ * Truncated scrapes are not recorded, since the cap hides how far they actually reached, and neither are partial
+ * scrapes cut short by a deadline.
+ */
+public class CoverageTracker {
+    // Discs are bucketed on a coarse grid (about 5.5 km) so lookups only scan nearby discs
+    private static final double CELL_DEGREES = 0.05;
+    private final double payloadRadiusKm;
+    private final double radiusFactor;
+    private final Map<Long, List<Disc>> discsByCell = new ConcurrentHashMap<>();
+    private final AtomicInteger recordedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+
+    /**
+     * Constructs a CoverageTracker.
+     *
+     * @param payloadRadiusKm the radius a point payload is assumed to need covered before it can be skipped
+     * @param radiusFactor    the fraction of the farthest merchant distance trusted as covered, in (0, 1]
+     */
+    public CoverageTracker(double payloadRadiusKm, double radiusFactor) {
+        if (radiusFactor <= 0 || radiusFactor > 1) {
+            throw new IllegalArgumentException("Radius factor must be in (0, 1]");
+        }
+        this.payloadRadiusKm = payloadRadiusKm;
+        this.radiusFactor = radiusFactor;
+    }
+
+    /**
+     * Records the disc covered by a completed scrape.
+     *
+     * @param scrapedData the result of scraping one point
+     */
+    public void record(ScrapedData scrapedData) {
+        if (scrapedData == null || scrapedData.partial() || scrapedData.restaurantSet().isEmpty()
+                || scrapedData.restaurantSet().size() >= RestaurantScrapingService.MAX_RESULTS) {
+            return;
+        }
+        double[] center = GeoMath.parseLatLng(scrapedData.metaData().getLocation());
+        double maxDistance = 0;
+        for (Restaurant restaurant : scrapedData.restaurantSet()) {
+            maxDistance = Math.max(maxDistance, restaurant.distance());
+        }
+        addDisc(new Disc(center[0], center[1], maxDistance * radiusFactor));
+    }
+
+    /**
+     * Checks whether a disc lies entirely inside one recorded disc.
+     *
+     * @param latitude  the latitude of the disc centre
+     * @param longitude the longitude of the disc centre
+     * @param radiusKm  the radius of the disc
+     * @return true if the disc is already covered
+     */
+    public boolean isCovered(double latitude, double longitude, double radiusKm) {
+        List<Disc> candidates = discsByCell.get(cellKey(cell(latitude), cell(longitude)));
+        if (candidates == null) {
+            return false;
+        }
+        for (Disc disc : candidates) {
+            if (GeoMath.haversineKm(latitude, longitude, disc.latitude, disc.longitude) + radiusKm <= disc.radiusKm) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a point payload's assumed area is already covered.
+     *
+     * @param payload the pending payload
+     * @return true if the payload can be skipped
+     */
+    public boolean isCovered(Payload payload) {
+        double[] point = GeoMath.parseLatLng(payload.getLatlng());
+        return isCovered(point[0], point[1], payloadRadiusKm);
+    }
+
+    /**
+     * Checks whether a whole tile is already covered, using the disc circumscribing it.
+     *
+     * @param tile the pending tile
+     * @return true if the tile can be skipped
+     */
+    public boolean isCovered(GeoTile tile) {
+        BoundingBox bounds = tile.bounds();
+        double halfDiagonal = GeoMath.haversineKm(bounds.minLatitude(), bounds.minLongitude(), bounds.maxLatitude(), bounds.maxLongitude()) / 2;
+        return isCovered(bounds.centerLatitude(), bounds.centerLongitude(), halfDiagonal);
+    }
+
+    /**
+     * Drops pending payloads that are already covered, and merges payloads that lie closer together
+     * than the given spacing into the first of them.
+     *
+     * @param pending      the payloads waiting to be scraped
+     * @param minSpacingKm the minimum distance between two kept payloads
+     * @return the payloads still worth scraping, in their original order
+     */
+    public List<Payload> prune(List<Payload> pending, double minSpacingKm) {
+        List<Payload> kept = new ArrayList<>();
+        List<double[]> keptPoints = new ArrayList<>();
+        for (Payload payload : pending) {
+            double[] point = GeoMath.parseLatLng(payload.getLatlng());
+            boolean redundant = isCovered(point[0], point[1], payloadRadiusKm);
+            for (int i = 0; !redundant && i < keptPoints.size(); i++) {
+                double[] other = keptPoints.get(i);
+                redundant = GeoMath.haversineKm(point[0], point[1], other[0], other[1]) < minSpacingKm;
+            }
+            if (redundant) {
+                skippedCount.incrementAndGet();
+            } else {
+                kept.add(payload);
+                keptPoints.add(point);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Estimates the fraction of a region covered by the recorded discs by sampling a regular grid of points.
+     *
+     * @param region         the region to measure
+     * @param samplesPerSide the number of sample points along each side of the region
+     * @return the covered fraction, between 0 and 1
+     */
+    public double coverageRatio(BoundingBox region, int samplesPerSide) {
+        int covered = 0;
+        double latStep = (region.maxLatitude() - region.minLatitude()) / samplesPerSide;
+        double lngStep = (region.maxLongitude() - region.minLongitude()) / samplesPerSide;
+        for (int i = 0; i < samplesPerSide; i++) {
+            for (int j = 0; j < samplesPerSide; j++) {
+                if (isCovered(region.minLatitude() + (i + 0.5) * latStep, region.minLongitude() + (j + 0.5) * lngStep, 0)) {
+                    covered++;
+                }
+            }
+        }
+        return (double) covered / ((long) samplesPerSide * samplesPerSide);
+    }
+
+    /**
+     * Decides whether a pending payload should be skipped, counting it if so.
+     *
+     * @param payload the payload about to be launched
+     * @return true if its area is already covered
+     */
+    public boolean shouldSkip(Payload payload) {
+        return countIfSkipped(isCovered(payload));
+    }
+
+    /**
+     * Decides whether a pending tile should be skipped, counting it if so.
+     *
+     * @param tile the tile about to be launched
+     * @return true if the tile is already covered
+     */
+    public boolean shouldSkip(GeoTile tile) {
+        return countIfSkipped(isCovered(tile));
+    }
+
+    public int getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    public int getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    private boolean countIfSkipped(boolean covered) {
+        if (covered) {
+            skippedCount.incrementAndGet();
+        }
+        return covered;
+    }
+
+    private void addDisc(Disc disc) {
+        double latSpan = GeoMath.kmToLatitudeDegrees(disc.radiusKm);
+        double lngSpan = GeoMath.kmToLongitudeDegrees(disc.radiusKm, disc.latitude);
+        for (long latCell = cell(disc.latitude - latSpan); latCell <= cell(disc.latitude + latSpan); latCell++) {
+            for (long lngCell = cell(disc.longitude - lngSpan); lngCell <= cell(disc.longitude + lngSpan); lngCell++) {
+                discsByCell.computeIfAbsent(cellKey(latCell, lngCell), key -> new CopyOnWriteArrayList<>()).add(disc);
+            }
+        }
+        recordedCount.incrementAndGet();
+    }
+
+    private static long cell(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(long latCell, long lngCell) {
+        return (latCell << 32) ^ (lngCell & 0xffffffffL);
+    }
+
+    private record Disc(double latitude, double longitude, double radiusKm) {
+    }
+}
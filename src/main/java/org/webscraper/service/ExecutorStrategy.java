@@ -0,0 +1,50 @@
+package org.webscraper.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Strategy for creating the executor that {@link MultiLocationScrapingService} runs its work on.
+ * A new executor is created every time the service is (re)started.
+ */
+@FunctionalInterface
+public interface ExecutorStrategy {
+
+    /**
+     * Creates a fresh executor.
+     *
+     * @return the executor service to run scraping work on
+     */
+    ExecutorService create();
+
+    /**
+     * Platform threads in a fixed-size pool.
+     *
+     * @param threadCount the number of pool threads
+     * @return a strategy creating fixed thread pools
+     */
+    static ExecutorStrategy fixedThreadPool(int threadCount) {
+        return () -> Executors.newFixedThreadPool(threadCount);
+    }
+
+    /**
+     * A work-stealing ForkJoin pool in FIFO mode. Page decodes are queued in arrival order and idle workers
+     * steal from busy ones, which keeps fairness across locations without a dedicated thread per location.
+     *
+     * @param parallelism the target number of worker threads
+     * @return a strategy creating work-stealing pools
+     */
+    static ExecutorStrategy workStealing(int parallelism) {
+        return () -> Executors.newWorkStealingPool(parallelism);
+    }
+
+    /**
+     * One virtual thread per task. Blocking reads park the virtual thread instead of a platform thread,
+     * so the number of concurrent tasks is bounded by the service's page limit and the rate limiter.
+     *
+     * @return a strategy creating virtual-thread-per-task executors
+     */
+    static ExecutorStrategy virtualThreadPerTask() {
+        return Executors::newVirtualThreadPerTaskExecutor;
+    }
+}
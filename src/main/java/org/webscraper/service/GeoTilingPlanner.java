@@ -0,0 +1,168 @@
+package org.webscraper.service;
+
+import org.webscraper.model.BoundingBox;
+import org.webscraper.model.GeoPolygon;
+import org.webscraper.model.GeoTile;
+import org.webscraper.model.Location;
+import org.webscraper.model.Payload;
+import org.webscraper.model.ScrapedData;
+import org.webscraper.utils.GeoMath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plans scraping payloads over a region as an adaptive quadtree.
+ * The region is first covered by a uniform grid; a tile whose scrape hits the per-location result cap
+ * is split into four quadrants and re-scraped, while tiles that came back below the cap are final.
+ */
+public class GeoTilingPlanner {
+    private final double initialTileKm;
+    private final double minTileKm;
+    private final String countryCode;
+
+    /**
+     * Constructs a GeoTilingPlanner.
+     *
+     * @param initialTileKm the edge length of the initial grid cells in kilometres
+     * @param minTileKm     the edge length below which saturated tiles are no longer split
+     * @param countryCode   the country code sent with every payload
+     */
+    public GeoTilingPlanner(double initialTileKm, double minTileKm, String countryCode) {
+        if (initialTileKm <= 0 || minTileKm <= 0) {
+            throw new IllegalArgumentException("Tile sizes must be positive");
+        }
+        this.initialTileKm = initialTileKm;
+        this.minTileKm = minTileKm;
+        this.countryCode = countryCode;
+    }
+
+    /**
+     * Covers a bounding box with a grid of tiles of roughly {@code initialTileKm} on each side.
+     *
+     * @param box the region to cover
+     * @return the initial tiles, row by row from the south-west corner
+     */
+    public List<GeoTile> initialGrid(BoundingBox box) {
+        double latStep = GeoMath.kmToLatitudeDegrees(initialTileKm);
+        // Use the latitude closest to the equator so tiles are never wider than requested
+        double widestLatitude = Math.min(Math.abs(box.minLatitude()), Math.abs(box.maxLatitude()));
+        if (box.minLatitude() < 0 && box.maxLatitude() > 0) {
+            widestLatitude = 0;
+        }
+        double lngStep = GeoMath.kmToLongitudeDegrees(initialTileKm, widestLatitude);
+
+        List<GeoTile> tiles = new ArrayList<>();
+        for (double lat = box.minLatitude(); lat < box.maxLatitude(); lat += latStep) {
+            for (double lng = box.minLongitude(); lng < box.maxLongitude(); lng += lngStep) {
+                BoundingBox cell = new BoundingBox(lat, lng,
+                        Math.min(lat + latStep, box.maxLatitude()), Math.min(lng + lngStep, box.maxLongitude()));
+                tiles.add(new GeoTile(cell, 0));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Covers a polygon with grid tiles, keeping only the tiles that overlap it.
+     *
+     * @param polygon the region to cover
+     * @return the initial tiles overlapping the polygon
+     */
+    public List<GeoTile> initialGrid(GeoPolygon polygon) {
+        List<GeoTile> tiles = new ArrayList<>();
+        for (GeoTile tile : initialGrid(polygon.boundingBox())) {
+            if (overlaps(tile.bounds(), polygon)) {
+                tiles.add(tile);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Decides whether a scraped tile needs to be subdivided.
+     *
+     * @param tile        the tile that was scraped
+     * @param scrapedData the result of scraping the tile's centre
+     * @return the four sub-tiles if the result was truncated and the tile can still be split; otherwise an empty list
+     */
+    public List<GeoTile> refine(GeoTile tile, ScrapedData scrapedData) {
+        if (scrapedData == null || scrapedData.restaurantSet().size() < RestaurantScrapingService.MAX_RESULTS) {
+            return List.of();
+        }
+        if (edgeKm(tile.bounds()) / 2 < minTileKm) {
+            return List.of();
+        }
+        return tile.split();
+    }
+
+    /**
+     * Builds the payload that scrapes a tile from its centre.
+     *
+     * @param tile the tile to scrape
+     * @return a first-page payload for the tile
+     */
+    public Payload toPayload(GeoTile tile) {
+        BoundingBox bounds = tile.bounds();
+        String latlng = GeoMath.formatLatLng(bounds.centerLatitude(), bounds.centerLongitude());
+        return new Payload(latlng, "", 0, RestaurantScrapingService.PAGE_SIZE, countryCode);
+    }
+
+    private static double edgeKm(BoundingBox bounds) {
+        double height = GeoMath.haversineKm(bounds.minLatitude(), bounds.minLongitude(), bounds.maxLatitude(), bounds.minLongitude());
+        double width = GeoMath.haversineKm(bounds.centerLatitude(), bounds.minLongitude(), bounds.centerLatitude(), bounds.maxLongitude());
+        return Math.max(height, width);
+    }
+
+    private static boolean overlaps(BoundingBox bounds, GeoPolygon polygon) {
+        if (polygon.contains(bounds.centerLatitude(), bounds.centerLongitude())
+                || polygon.contains(bounds.minLatitude(), bounds.minLongitude())
+                || polygon.contains(bounds.minLatitude(), bounds.maxLongitude())
+                || polygon.contains(bounds.maxLatitude(), bounds.minLongitude())
+                || polygon.contains(bounds.maxLatitude(), bounds.maxLongitude())) {
+            return true;
+        }
+        for (Location vertex : polygon.vertices()) {
+            if (bounds.contains(vertex.latitude(), vertex.longitude())) {
+                return true;
+            }
+        }
+        // A thin part of the polygon can cut across the tile with no vertex inside it and no corner inside the polygon
+        List<Location> vertices = polygon.vertices();
+        for (int i = 0, j = vertices.size() - 1; i < vertices.size(); j = i++) {
+            if (crosses(bounds, vertices.get(j), vertices.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests whether the segment from a to b passes through the box, by clipping it against each side in turn
+     * (Liang-Barsky).
+     */
+    private static boolean crosses(BoundingBox bounds, Location a, Location b) {
+        double dLat = b.latitude() - a.latitude();
+        double dLng = b.longitude() - a.longitude();
+        double[] p = {-dLat, dLat, -dLng, dLng};
+        double[] q = {a.latitude() - bounds.minLatitude(), bounds.maxLatitude() - a.latitude(),
+                a.longitude() - bounds.minLongitude(), bounds.maxLongitude() - a.longitude()};
+        double enter = 0;
+        double exit = 1;
+        for (int side = 0; side < 4; side++) {
+            if (p[side] == 0) {
+                if (q[side] < 0) {
+                    return false; // Parallel to this side and outside it
+                }
+            } else {
+                double t = q[side] / p[side];
+                if (p[side] < 0) {
+                    enter = Math.max(enter, t);
+                } else {
+                    exit = Math.min(exit, t);
+                }
+            }
+        }
+        return enter <= exit;
+    }
+}
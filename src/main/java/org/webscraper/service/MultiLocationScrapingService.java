@@ -5,12 +5,21 @@ import kotlin.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.webscraper.client.Client;
+import org.webscraper.client.Deadline;
+import org.webscraper.exceptions.DeadlineExceededException;
 import org.webscraper.exceptions.ScrapingException;
+import org.webscraper.model.GeoTile;
 import org.webscraper.model.MetaData;
 import org.webscraper.model.Payload;
+import org.webscraper.model.ScrapeEvent;
 import org.webscraper.model.ScrapedData;
+import org.webscraper.store.SweepJournal;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Service class to manage scraping operations across multiple locations concurrently.
@@ -18,13 +27,20 @@ import java.util.concurrent.*;
  */
 public class MultiLocationScrapingService {
     private static final int THREAD_COUNT = 10;
+    private static final int DEFAULT_MAX_PAGES_IN_FLIGHT = 64;
     private static final int SCRAPING_TIMEOUT_SECONDS = 30;
-    private static final int RATE_LIMIT_DELAY_MILLIS = 1000;
+    public static final String AGGREGATE_LOCATION = "all locations";
     private static final Logger logger = LoggerFactory.getLogger(MultiLocationScrapingService.class);
 
     private final Client client;
     private final ObjectMapper objectMapper;
+    private final ExecutorStrategy executorStrategy;
+    private final int maxPagesInFlight;
+    private final SweepJournal journal;
     private ExecutorService executorService;
+    private PageScheduler pageScheduler;
+    private volatile Duration sweepTimeout;
+    private volatile Duration locationTimeout;
 
     /**
      * Constructs a MultiLocationScrapingService with specified client and JSON mapper.
@@ -33,9 +49,53 @@ public class MultiLocationScrapingService {
      * @param objectMapper the JSON mapper for processing data
      */
     public MultiLocationScrapingService(Client client, ObjectMapper objectMapper) {
+        this(client, objectMapper, ExecutorStrategy.workStealing(THREAD_COUNT), DEFAULT_MAX_PAGES_IN_FLIGHT);
+    }
+
+    /**
+     * Constructs a MultiLocationScrapingService with a pluggable executor and a cap on outstanding page requests.
+     * Since a location has at most one page in flight, this also caps the number of locations scraped at once.
+     *
+     * @param client the client used for making HTTP requests
+     * @param objectMapper the JSON mapper for processing data
+     * @param executorStrategy the strategy creating the executor that decodes pages
+     * @param maxPagesInFlight the maximum number of page requests outstanding at once
+     */
+    public MultiLocationScrapingService(Client client, ObjectMapper objectMapper, ExecutorStrategy executorStrategy, int maxPagesInFlight) {
+        this(client, objectMapper, executorStrategy, maxPagesInFlight, SweepJournal.disabled());
+    }
+
+    /**
+     * Constructs a MultiLocationScrapingService that checkpoints every completed page, so an interrupted sweep
+     * resumes from its journal instead of starting over.
+     *
+     * @param client the client used for making HTTP requests
+     * @param objectMapper the JSON mapper for processing data
+     * @param executorStrategy the strategy creating the executor that decodes pages
+     * @param maxPagesInFlight the maximum number of page requests outstanding at once
+     * @param journal the journal recording completed pages
+     */
+    public MultiLocationScrapingService(Client client, ObjectMapper objectMapper, ExecutorStrategy executorStrategy, int maxPagesInFlight, SweepJournal journal) {
         this.client = client;
         this.objectMapper = objectMapper;
-        this.executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        this.executorStrategy = executorStrategy;
+        this.maxPagesInFlight = maxPagesInFlight;
+        this.journal = journal;
+        this.executorService = executorStrategy.create();
+        this.pageScheduler = new PageScheduler(client, objectMapper, executorService, maxPagesInFlight, journal);
+    }
+
+    /**
+     * Bounds every later sweep and each of its locations. A sweep's deadline starts when it is started and a
+     * location's when its first page is sent; both are passed down to every page request. Locations cut short
+     * complete with the restaurants found so far, and streams report them as failed, so the run counts as partial.
+     *
+     * @param sweepTimeout    the time a whole sweep may take, or null for no limit
+     * @param locationTimeout the time one location may take, or null for no limit
+     */
+    public void setTimeouts(Duration sweepTimeout, Duration locationTimeout) {
+        this.sweepTimeout = sweepTimeout;
+        this.locationTimeout = locationTimeout;
     }
 
     /**
@@ -43,7 +103,8 @@ public class MultiLocationScrapingService {
      */
     public void startService() {
         if (this.executorService.isShutdown() || this.executorService.isTerminated()) {
-            this.executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+            this.executorService = executorStrategy.create();
+            this.pageScheduler = new PageScheduler(client, objectMapper, executorService, maxPagesInFlight, journal);
         }
     }
 
@@ -68,21 +129,129 @@ public class MultiLocationScrapingService {
      */
     public List<CompletableFuture<ScrapedData>> fetchScrapedData(List<Payload> payloads) {
         List<CompletableFuture<ScrapedData>> futures = new ArrayList<>();
+        Deadline sweepDeadline = Deadline.after(sweepTimeout);
         for (Payload payload : payloads) {
-            CompletableFuture<ScrapedData> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    TimeUnit.MILLISECONDS.sleep(RATE_LIMIT_DELAY_MILLIS); // Enforce rate limit before processing
-                    RestaurantScrapingService scraper = new RestaurantScrapingService(client, objectMapper, new MetaData(payload.getLatlng()));
-                    return scraper.scrape(payload);
-                } catch (Exception e) {
-                    throw new CompletionException(new ScrapingException("Error scraping payload: " + payload, e));
-                }
-            }, executorService);
+            futures.add(submit(payload, () -> false, (location, restaurants) -> { }, true, sweepDeadline));
+        }
+        return futures;
+    }
+
+    /**
+     * Initiates asynchronous scraping for a list of payloads, skipping those whose area is already covered.
+     * Coverage is checked when a payload is launched rather than when it is queued, so discs recorded by
+     * earlier completions prune later payloads of the same call.
+     *
+     * @param payloads list of payloads to be scraped
+     * @param coverageTracker the tracker recording completed scrapes and deciding which payloads to skip
+     * @return a list of CompletableFuture objects, completed with null for skipped payloads
+     */
+    public List<CompletableFuture<ScrapedData>> fetchScrapedData(List<Payload> payloads, CoverageTracker coverageTracker) {
+        List<CompletableFuture<ScrapedData>> futures = new ArrayList<>();
+        Deadline sweepDeadline = Deadline.after(sweepTimeout);
+        for (Payload payload : payloads) {
+            CompletableFuture<ScrapedData> future = submit(payload, () -> coverageTracker.shouldSkip(payload),
+                    (location, restaurants) -> { }, true, sweepDeadline);
+            future.thenAccept(coverageTracker::record);
             futures.add(future);
         }
         return futures;
     }
 
+    /**
+     * Prepares a streaming scrape of a list of payloads. Nothing is requested until {@link ScrapeStream#start()}
+     * is called, so every subscriber sees every event. Restaurants are emitted as each page is decoded and are
+     * not retained by the service, so memory use does not grow with the number of locations.
+     *
+     * @param payloads list of payloads to be scraped
+     * @return a publisher of restaurant, location-completed and location-failed events
+     */
+    public ScrapeStream streamScrapedData(List<Payload> payloads) {
+        return new ScrapeStream(Flow.defaultBufferSize(), stream -> {
+            if (payloads.isEmpty()) {
+                stream.complete();
+                return;
+            }
+            AtomicInteger remaining = new AtomicInteger(payloads.size());
+            Deadline sweepDeadline = Deadline.after(sweepTimeout);
+            for (Payload payload : payloads) {
+                stream.track(submit(payload, () -> false,
+                        (location, restaurants) -> restaurants.forEach(restaurant -> stream.publish(new ScrapeEvent.RestaurantScraped(location, restaurant))),
+                        false, sweepDeadline
+                )).whenComplete((scrapedData, e) -> {
+                    if (e instanceof CancellationException) {
+                        // The consumer has gone away, so there is nobody to report to
+                    } else if (e != null) {
+                        logger.error("Error scraping location {}: {}", payload.getLatlng(), e.getMessage(), e);
+                        stream.publish(new ScrapeEvent.LocationFailed(payload.getLatlng(), e));
+                    } else if (scrapedData.partial()) {
+                        stream.publish(partialLocation(payload.getLatlng()));
+                    } else {
+                        stream.publish(new ScrapeEvent.LocationCompleted(scrapedData.metaData()));
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        stream.complete();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Prepares a streaming scrape of a region, tile by tile, splitting every tile whose scrape was truncated by
+     * the result cap. Sub-tiles are submitted as soon as their parent completes rather than waiting for a whole
+     * level. Nothing is requested until {@link ScrapeStream#start()} is called.
+     *
+     * @param tiles   the initial tiles, typically from {@link GeoTilingPlanner#initialGrid}
+     * @param planner the planner deciding payloads and subdivisions
+     * @return a publisher of events for every scraped tile
+     */
+    public ScrapeStream streamTiledScrapedData(List<GeoTile> tiles, GeoTilingPlanner planner) {
+        return streamTiledScrapedData(tiles, planner, null);
+    }
+
+    /**
+     * Prepares a streaming adaptive scrape like {@link #streamTiledScrapedData(List, GeoTilingPlanner)}, additionally
+     * skipping tiles that are already covered by the merchant distances of completed neighbours.
+     *
+     * @param tiles           the initial tiles
+     * @param planner         the planner deciding payloads and subdivisions
+     * @param coverageTracker the tracker recording coverage as results arrive, or null to scrape every tile
+     * @return a publisher of events for every tile that was actually scraped
+     */
+    public ScrapeStream streamTiledScrapedData(List<GeoTile> tiles, GeoTilingPlanner planner, CoverageTracker coverageTracker) {
+        return streamTiledScrapedData(tiles, planner, coverageTracker, tile -> { });
+    }
+
+    /**
+     * Prepares a streaming adaptive scrape like {@link #streamTiledScrapedData(List, GeoTilingPlanner, CoverageTracker)},
+     * additionally reporting the leaves of the quadtree: every tile that was scraped, or failed, without being split.
+     * Together they cover the region at the resolution its density required, so they are the locations to keep
+     * re-scraping.
+     *
+     * @param tiles           the initial tiles
+     * @param planner         the planner deciding payloads and subdivisions
+     * @param coverageTracker the tracker recording coverage as results arrive, or null to scrape every tile
+     * @param leafListener    invoked with each leaf tile once it has been resolved, from the decode threads
+     * @return a publisher of events for every tile that was actually scraped
+     */
+    public ScrapeStream streamTiledScrapedData(List<GeoTile> tiles, GeoTilingPlanner planner, CoverageTracker coverageTracker,
+                                               Consumer<? super GeoTile> leafListener) {
+        return new ScrapeStream(Flow.defaultBufferSize(), stream -> new TiledSweep(planner, coverageTracker, leafListener, stream).start(tiles));
+    }
+
+    private CompletableFuture<ScrapedData> submit(Payload payload, BooleanSupplier alreadyCovered,
+                                                  PageScheduler.PageListener listener, boolean retainResults, Deadline sweepDeadline) {
+        return pageScheduler.submit(payload, alreadyCovered, listener, retainResults, sweepDeadline, locationTimeout);
+    }
+
+    /**
+     * Reports a location cut short by a deadline as failed, so consumers treat the run as partial. The restaurants
+     * it emitted before the deadline remain valid.
+     */
+    private static ScrapeEvent partialLocation(String location) {
+        return new ScrapeEvent.LocationFailed(location, new DeadlineExceededException("Deadline reached before all pages of " + location + " were scraped"));
+    }
+
     /**
      * Processes the scraped data to extract and aggregate specific information.
      *
@@ -110,32 +279,111 @@ public class MultiLocationScrapingService {
     }
 
     /**
-     * Generates and prints aggregate metadata for each location from the scraped data.
+     * Prints the metadata of each location from the scraped data, followed by the run-wide aggregate.
      *
      * @param futures the list of CompletableFuture objects holding the scraped data
+     * @return the metadata of all locations merged together
      */
-    public void generateAggregateMetaData(List<CompletableFuture<ScrapedData>> futures) {
+    public MetaData generateAggregateMetaData(List<CompletableFuture<ScrapedData>> futures) {
+        MetaData aggregate = new MetaData(AGGREGATE_LOCATION);
         for (CompletableFuture<ScrapedData> future : futures) {
             ScrapedData scrapedData = future.join();
-            System.out.println(" ");
             if (scrapedData != null) {
-                MetaData metaData = scrapedData.metaData();
-                System.out.println("MetaData for location: " + metaData.getLocation());
-                System.out.println("Total Count: " + metaData.getTotalCount());
-                System.out.println("Name - Null Count: " + metaData.getNameNullCount() + ", Not Null Count: " + metaData.getNameNotNullCount());
-                System.out.println("Cuisine - Null Count: " + metaData.getCuisineNullCount() + ", Not Null Count: " + metaData.getCuisineNotNullCount());
-                System.out.println("Rating - Null Count: " + metaData.getRatingNullCount() + ", Not Null Count: " + metaData.getRatingNotNullCount());
-                System.out.println("Estimated Delivery Time - Null Count: " + metaData.getEstimatedDeliveryTimeNullCount() + ", Not Null Count: " + metaData.getEstimatedDeliveryTimeNotNullCount());
-                System.out.println("Distance - Null Count: " + metaData.getDistanceNullCount() + ", Not Null Count: " + metaData.getDistanceNotNullCount());
-                System.out.println("Is Promo Available - Null Count: " + metaData.getIsPromoAvailableNullCount() + ", Not Null Count: " + metaData.getIsPromoAvailableNotNullCount());
-                System.out.println("Promo Description - Null Count: " + metaData.getPromoDescriptionNullCount() + ", Not Null Count: " + metaData.getPromoDescriptionNotNullCount());
-                System.out.println("Image Link - Null Count: " + metaData.getImageLinkNullCount() + ", Not Null Count: " + metaData.getImageLinkNotNullCount());
-                System.out.println("Restaurant ID - Null Count: " + metaData.getRestaurantIdNullCount() + ", Not Null Count: " + metaData.getRestaurantIdNotNullCount());
-                System.out.println("Latitude - Null Count: " + metaData.getLatitudeNullCount() + ", Not Null Count: " + metaData.getLatitudeNotNullCount());
-                System.out.println("Longitude - Null Count: " + metaData.getLongitudeNullCount() + ", Not Null Count: " + metaData.getLongitudeNotNullCount());
-                System.out.println("Estimated Delivery Fee - Null Count: " + metaData.getEstimatedDeliveryFeeNullCount() + ", Not Null Count: " + metaData.getEstimatedDeliveryFeeNotNullCount());
-                System.out.println("Closing Soon Text - Null Count: " + metaData.getClosingSoonTextNullCount() + ", Not Null Count: " + metaData.getClosingSoonTextNotNullCount());
+                printMetaData(scrapedData.metaData());
+                aggregate.merge(scrapedData.metaData());
+            }
+        }
+        printMetaData(aggregate);
+        return aggregate;
+    }
+
+    /**
+     * Prints the null and non-null counts recorded for one location.
+     *
+     * @param metaData the metadata to print
+     */
+    public void printMetaData(MetaData metaData) {
+        System.out.println(" ");
+        System.out.println("MetaData for location: " + metaData.getLocation());
+        System.out.println("Total Count: " + metaData.getTotalCount());
+        System.out.println("Name - Null Count: " + metaData.getNameNullCount() + ", Not Null Count: " + metaData.getNameNotNullCount());
+        System.out.println("Cuisine - Null Count: " + metaData.getCuisineNullCount() + ", Not Null Count: " + metaData.getCuisineNotNullCount());
+        System.out.println("Rating - Null Count: " + metaData.getRatingNullCount() + ", Not Null Count: " + metaData.getRatingNotNullCount());
+        System.out.println("Estimated Delivery Time - Null Count: " + metaData.getEstimatedDeliveryTimeNullCount() + ", Not Null Count: " + metaData.getEstimatedDeliveryTimeNotNullCount());
+        System.out.println("Distance - Null Count: " + metaData.getDistanceNullCount() + ", Not Null Count: " + metaData.getDistanceNotNullCount());
+        System.out.println("Is Promo Available - Null Count: " + metaData.getIsPromoAvailableNullCount() + ", Not Null Count: " + metaData.getIsPromoAvailableNotNullCount());
+        System.out.println("Promo Description - Null Count: " + metaData.getPromoDescriptionNullCount() + ", Not Null Count: " + metaData.getPromoDescriptionNotNullCount());
+        System.out.println("Image Link - Null Count: " + metaData.getImageLinkNullCount() + ", Not Null Count: " + metaData.getImageLinkNotNullCount());
+        System.out.println("Restaurant ID - Null Count: " + metaData.getRestaurantIdNullCount() + ", Not Null Count: " + metaData.getRestaurantIdNotNullCount());
+        System.out.println("Latitude - Null Count: " + metaData.getLatitudeNullCount() + ", Not Null Count: " + metaData.getLatitudeNotNullCount());
+        System.out.println("Longitude - Null Count: " + metaData.getLongitudeNullCount() + ", Not Null Count: " + metaData.getLongitudeNotNullCount());
+        System.out.println("Estimated Delivery Fee - Null Count: " + metaData.getEstimatedDeliveryFeeNullCount() + ", Not Null Count: " + metaData.getEstimatedDeliveryFeeNotNullCount());
+        System.out.println("Closing Soon Text - Null Count: " + metaData.getClosingSoonTextNullCount() + ", Not Null Count: " + metaData.getClosingSoonTextNotNullCount());
+    }
+
+    /**
+     * State of one adaptive sweep. Children are registered before their parent is counted as done,
+     * so the outstanding count only reaches zero once the whole quadtree has been resolved.
+     * A tile's restaurants are held only until its subdivision has been decided.
+     */
+    private final class TiledSweep {
+        private final GeoTilingPlanner planner;
+        private final CoverageTracker coverageTracker;
+        private final Consumer<? super GeoTile> leafListener;
+        private final ScrapeStream stream;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final Deadline sweepDeadline = Deadline.after(sweepTimeout);
+
+        private TiledSweep(GeoTilingPlanner planner, CoverageTracker coverageTracker, Consumer<? super GeoTile> leafListener, ScrapeStream stream) {
+            this.planner = planner;
+            this.coverageTracker = coverageTracker;
+            this.leafListener = leafListener;
+            this.stream = stream;
+        }
+
+        private void start(List<GeoTile> tiles) {
+            if (tiles.isEmpty()) {
+                stream.complete();
+            } else {
+                submit(tiles);
+            }
+        }
+
+        private void submit(List<GeoTile> tiles) {
+            outstanding.addAndGet(tiles.size());
+            for (GeoTile tile : tiles) {
+                stream.track(MultiLocationScrapingService.this.submit(planner.toPayload(tile),
+                        () -> coverageTracker != null && coverageTracker.shouldSkip(tile),
+                        (location, restaurants) -> restaurants.forEach(restaurant -> stream.publish(new ScrapeEvent.RestaurantScraped(location, restaurant))),
+                        true, sweepDeadline
+                )).whenComplete((scrapedData, e) -> {
+                    if (e instanceof CancellationException) {
+                        // The consumer has gone away, so the tile is neither reported nor split
+                    } else if (e != null) {
+                        logger.error("Error scraping tile {}: {}", tile, e.getMessage(), e);
+                        leafListener.accept(tile);
+                        stream.publish(new ScrapeEvent.LocationFailed(planner.toPayload(tile).getLatlng(), e));
+                    } else if (scrapedData != null && scrapedData.partial()) {
+                        leafListener.accept(tile);
+                        stream.publish(partialLocation(planner.toPayload(tile).getLatlng()));
+                    } else if (scrapedData != null) {
+                        if (coverageTracker != null) {
+                            coverageTracker.record(scrapedData);
+                        }
+                        List<GeoTile> children = planner.refine(tile, scrapedData);
+                        if (!children.isEmpty()) {
+                            logger.info("Tile at depth {} around {} hit the result cap, splitting", tile.depth(), scrapedData.metaData().getLocation());
+                            submit(children);
+                        } else {
+                            leafListener.accept(tile);
+                        }
+                        stream.publish(new ScrapeEvent.LocationCompleted(scrapedData.metaData()));
+                    }
+                    if (outstanding.decrementAndGet() == 0) {
+                        stream.complete();
+                    }
+                });
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,371 @@
+package org.webscraper.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.client.Client;
+import org.webscraper.client.Deadline;
+import org.webscraper.exceptions.ScrapingException;
+import org.webscraper.model.MetaData;
+import org.webscraper.model.Payload;
+import org.webscraper.model.Restaurant;
+import org.webscraper.model.ScrapedData;
+import org.webscraper.store.SweepJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Schedules scraping at page granularity across every submitted location.
+ * Each location has at most one page queued or in flight. When a page shows more results are available,
+ * the location's next page joins the tail of a shared FIFO queue, behind pages of other locations that
+ * were already waiting, so dense and sparse locations interleave fairly instead of one location holding
+ * a worker for all of its pages.
+ * Response bodies are pulled into memory on the HTTP client's callback thread, and decoding runs on the
+ * supplied executor, typically a work-stealing pool.
+ * Every decoded page is recorded in a {@link SweepJournal}; pages an interrupted run already completed are replayed
+ * from the journal instead of being requested again.
+ * A location may be bounded by its sweep's deadline and by a timeout starting when its first page is sent. Both are
+ * passed down to every page request, and a location whose deadline passes completes with the pages it has,
+ * marked partial, rather than holding up the sweep. Cancelling the future returned for a location stops it at its
+ * next page; a page already in flight is discarded when it arrives.
+ */
+public class PageScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PageScheduler.class);
+    private final Client client;
+    private final ObjectMapper objectMapper;
+    private final Executor decodeExecutor;
+    private final Semaphore pagePermits;
+    private final SweepJournal journal;
+    private final Queue<LocationCursor> readyLocations = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger dispatchRequests = new AtomicInteger();
+
+    /**
+     * Constructs a PageScheduler.
+     *
+     * @param client           the client used for making HTTP requests
+     * @param objectMapper     the object mapper for JSON processing
+     * @param decodeExecutor   the executor that decodes page responses
+     * @param maxPagesInFlight the maximum number of page requests outstanding at once
+     */
+    public PageScheduler(Client client, ObjectMapper objectMapper, Executor decodeExecutor, int maxPagesInFlight) {
+        this(client, objectMapper, decodeExecutor, maxPagesInFlight, SweepJournal.disabled());
+    }
+
+    /**
+     * Constructs a PageScheduler that checkpoints every page and resumes from earlier progress.
+     *
+     * @param client           the client used for making HTTP requests
+     * @param objectMapper     the object mapper for JSON processing
+     * @param decodeExecutor   the executor that decodes page responses
+     * @param maxPagesInFlight the maximum number of page requests outstanding at once
+     * @param journal          the journal recording completed pages
+     */
+    public PageScheduler(Client client, ObjectMapper objectMapper, Executor decodeExecutor, int maxPagesInFlight, SweepJournal journal) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.decodeExecutor = decodeExecutor;
+        this.pagePermits = new Semaphore(maxPagesInFlight);
+        this.journal = journal;
+    }
+
+    /**
+     * Queues a location for scraping.
+     *
+     * @param payload        the location's first-page payload
+     * @param alreadyCovered checked when the first page is about to be sent; if true the location is skipped
+     * @return a future completed with the location's data, with null if it was skipped,
+     * or exceptionally with a {@link ScrapingException}
+     */
+    public CompletableFuture<ScrapedData> submit(Payload payload, BooleanSupplier alreadyCovered) {
+        return submit(payload, alreadyCovered, (location, restaurants) -> { }, true);
+    }
+
+    /**
+     * Queues a location for scraping and reports every decoded page to a listener.
+     *
+     * @param payload        the location's first-page payload
+     * @param alreadyCovered checked when the first page is about to be sent; if true the location is skipped
+     * @param listener       invoked on the decode thread with the restaurants each page added
+     * @param retainResults  whether the location's restaurants are also collected into the returned ScrapedData;
+     *                       when false only restaurant ids are kept, for de-duplication across pages
+     * @return a future completed with the location's data, with null if it was skipped,
+     * or exceptionally with a {@link ScrapingException}
+     */
+    public CompletableFuture<ScrapedData> submit(Payload payload, BooleanSupplier alreadyCovered, PageListener listener, boolean retainResults) {
+        return submit(payload, alreadyCovered, listener, retainResults, Deadline.none(), null);
+    }
+
+    /**
+     * Queues a location for scraping under a deadline, reporting every decoded page to a listener.
+     *
+     * @param payload         the location's first-page payload
+     * @param alreadyCovered  checked when the first page is about to be sent; if true the location is skipped
+     * @param listener        invoked on the decode thread with the restaurants each page added
+     * @param retainResults   whether the location's restaurants are also collected into the returned ScrapedData
+     * @param sweepDeadline   the deadline of the whole sweep
+     * @param locationTimeout the time the location may take from its first page on, or null for no limit
+     * @return a future completed with the location's data, partial if a deadline cut it short, with null if it was
+     * skipped, or exceptionally with a {@link ScrapingException}; cancelling it stops the location
+     */
+    public CompletableFuture<ScrapedData> submit(Payload payload, BooleanSupplier alreadyCovered, PageListener listener,
+                                                 boolean retainResults, Deadline sweepDeadline, Duration locationTimeout) {
+        LocationCursor cursor = new LocationCursor(payload, alreadyCovered, listener, retainResults, sweepDeadline, locationTimeout);
+        readyLocations.add(cursor);
+        dispatch();
+        return cursor.result;
+    }
+
+    /**
+     * Sends queued pages while permits are available. Permits are taken without blocking, so no thread ever
+     * waits on the semaphore; every finishing page dispatches the next one. One thread runs the loop at a time, and
+     * a dispatch requested meanwhile, such as by a location that is skipped or fails inside the loop, makes it go
+     * round again instead of recursing, so a long run of such locations cannot overflow the stack.
+     */
+    private void dispatch() {
+        if (dispatchRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            while (!readyLocations.isEmpty() && pagePermits.tryAcquire()) {
+                LocationCursor cursor = readyLocations.poll();
+                if (cursor == null) {
+                    pagePermits.release();
+                    break;
+                }
+                cursor.sendNextPage();
+            }
+            requests = dispatchRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    /**
+     * Receives the restaurants of each page as soon as it has been decoded.
+     * A listener that blocks delays the location's next page, which is how consumers apply backpressure.
+     */
+    @FunctionalInterface
+    public interface PageListener {
+        void onPage(String location, List<Restaurant> restaurants);
+    }
+
+    private static Response bufferBody(Response response) {
+        try {
+            response.body().source().request(Long.MAX_VALUE);
+            return response;
+        } catch (IOException e) {
+            response.close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pagination state of one location. Only one page of a location is ever in flight, so its state is
+     * touched by one task at a time and needs no locking.
+     */
+    private final class LocationCursor {
+        private final Payload payload;
+        private final BooleanSupplier alreadyCovered;
+        private final PageListener listener;
+        private final boolean retainResults;
+        private final RestaurantScrapingService scraper;
+        private final Set<Restaurant> restaurants = new HashSet<>();
+        private final Set<String> restaurantIds = new HashSet<>();
+        private final CompletableFuture<ScrapedData> result = new CompletableFuture<>();
+        private final Deadline sweepDeadline;
+        private final Duration locationTimeout;
+        private Deadline deadline;
+        private List<SweepJournal.Page> journaledPages;
+        private int offset;
+
+        private LocationCursor(Payload payload, BooleanSupplier alreadyCovered, PageListener listener, boolean retainResults,
+                               Deadline sweepDeadline, Duration locationTimeout) {
+            this.payload = payload;
+            this.alreadyCovered = alreadyCovered;
+            this.listener = listener;
+            this.retainResults = retainResults;
+            this.sweepDeadline = sweepDeadline;
+            this.locationTimeout = locationTimeout;
+            this.scraper = new RestaurantScrapingService(client, objectMapper, new MetaData(payload.getLatlng()));
+            this.journaledPages = journal.completedPages(payload);
+        }
+
+        private void sendNextPage() {
+            if (result.isCancelled()) {
+                finish(null, null); // Only hands the permit on
+                return;
+            }
+            if (!journaledPages.isEmpty()) {
+                try {
+                    decodeExecutor.execute(this::replayJournaledPages);
+                } catch (RejectedExecutionException e) {
+                    finish(null, e); // The service was stopped
+                }
+                return;
+            }
+            if (offset == 0 && alreadyCovered.getAsBoolean()) {
+                logger.info("Skipping location {}: area already covered by earlier results", payload.getLatlng());
+                finish(null, null);
+                return;
+            }
+            if (deadline == null) {
+                // The location's own timeout starts once it is actually sent, not while it waits in the queue
+                deadline = sweepDeadline.min(Deadline.after(locationTimeout));
+            }
+            if (deadline.isExpired()) {
+                finishPartial();
+                return;
+            }
+            if (decodeExecutor instanceof ExecutorService service && service.isShutdown()) {
+                // No point spending a request whose response could not be decoded
+                finish(null, new RejectedExecutionException("Decode executor has been shut down"));
+                return;
+            }
+            client.makeRequestAsync(scraper.prepareExistingPayload(payload, offset), deadline)
+                    .thenApply(PageScheduler::bufferBody)
+                    .whenComplete(this::decodeAsync);
+        }
+
+        /**
+         * Hands the response to the decode executor. If the executor has been shut down, as when the service is
+         * stopped during a sweep, the location fails instead of never completing and holding its page permit.
+         */
+        private void decodeAsync(Response response, Throwable error) {
+            try {
+                decodeExecutor.execute(() -> decodePage(response, error));
+            } catch (RejectedExecutionException e) {
+                if (response != null) {
+                    response.close();
+                }
+                finish(null, e);
+            }
+        }
+
+        /**
+         * Re-emits the pages an earlier run completed, then either finishes the location or carries on with its
+         * first missing page. A journaled location is never skipped as covered, since its results were already used.
+         */
+        private void replayJournaledPages() {
+            List<SweepJournal.Page> pages = journaledPages;
+            journaledPages = List.of();
+            boolean finished = false;
+            try {
+                for (SweepJournal.Page page : pages) {
+                    List<Restaurant> added = new ArrayList<>();
+                    for (Restaurant restaurant : journal.readSegment(page)) {
+                        if (restaurantIds.add(restaurant.restaurantId())) {
+                            scraper.recordReplayed(restaurant);
+                            added.add(restaurant);
+                        }
+                    }
+                    if (retainResults) {
+                        restaurants.addAll(added);
+                    }
+                    listener.onPage(payload.getLatlng(), added);
+                    offset = page.offset() + RestaurantScrapingService.PAGE_SIZE;
+                    finished = page.finished();
+                }
+            } catch (IOException | RuntimeException e) {
+                finish(null, e);
+                return;
+            }
+            if (finished) {
+                finish(new ScrapedData(restaurants, scraper.getMetaData()), null);
+            } else {
+                sendNextPage();
+            }
+        }
+
+        private void decodePage(Response response, Throwable error) {
+            if (result.isCancelled()) {
+                if (response != null) {
+                    response.close();
+                }
+                finish(null, null); // Nobody wants the page, so it is neither reported nor journaled
+                return;
+            }
+            int merchants = -1;
+            Set<Restaurant> page = new LinkedHashSet<>();
+            if (error == null) {
+                try (response) {
+                    merchants = scraper.decodePage(response, page);
+                } catch (IOException | RuntimeException e) {
+                    error = e;
+                }
+            }
+            List<Restaurant> added = new ArrayList<>(page.size());
+            if (error == null) {
+                for (Restaurant restaurant : page) {
+                    if (restaurantIds.add(restaurant.restaurantId())) {
+                        added.add(restaurant);
+                    }
+                }
+                if (retainResults) {
+                    restaurants.addAll(added);
+                }
+                try {
+                    listener.onPage(payload.getLatlng(), added);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            boolean hasMorePages = merchants > 0 && restaurantIds.size() < RestaurantScrapingService.MAX_RESULTS;
+            if (error == null) {
+                try {
+                    journal.recordPage(payload, offset, merchants, !hasMorePages, added);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            if (error != null && deadline.isExpired()) {
+                finishPartial();
+            } else if (error != null) {
+                finish(null, error);
+            } else if (hasMorePages) {
+                offset += RestaurantScrapingService.PAGE_SIZE;
+                readyLocations.add(this); // Behind every page that was already waiting
+                pagePermits.release();
+                dispatch();
+            } else {
+                finish(new ScrapedData(restaurants, scraper.getMetaData()), null);
+            }
+        }
+
+        /**
+         * Completes the location with the pages decoded before its deadline. They are not journaled as finished,
+         * so a resumed run carries on from the first missing page.
+         */
+        private void finishPartial() {
+            logger.warn("Location {} reached its deadline at offset {}; returning the {} restaurants found so far",
+                    payload.getLatlng(), offset, restaurantIds.size());
+            finish(new ScrapedData(restaurants, scraper.getMetaData(), true), null);
+        }
+
+        private void finish(ScrapedData scrapedData, Throwable error) {
+            // Complete first so dependents such as coverage recording run before the next location is sent
+            if (error != null) {
+                result.completeExceptionally(new ScrapingException("Error scraping payload: " + payload, error));
+            } else {
+                result.complete(scrapedData);
+            }
+            pagePermits.release();
+            dispatch();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.webscraper.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.client.TokenBucket;
+import org.webscraper.model.Payload;
+import org.webscraper.model.Restaurant;
+import org.webscraper.model.ScrapedData;
+import org.webscraper.utils.Hashing;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Long-running scheduler that keeps re-scraping a fixed set of locations, each as often as its data changes.
+ * After every scrape the fee, delivery time and closingSoonText of each restaurant are compared with the
+ * previous scrape of the location, and the fraction that changed per minute is folded into an exponentially
+ * weighted change rate. A location is due again once {@link #CHANGE_THRESHOLD} of its restaurants are expected
+ * to have changed, clamped between a minimum and a maximum interval, so busy areas refresh every few minutes
+ * and quiet ones about hourly.
+ * <p>
+ * Locations wait in a delay queue ordered by due time. Every page request is paid for from a global budget
+ * bucket before the location is dispatched, and when the requests per second implied by all current intervals
+ * exceed the budget, every interval is stretched by the same factor, so the budget is shared in proportion
+ * to change rates instead of being exhausted by whichever locations come due first.
+ */
+public class RescrapeScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RescrapeScheduler.class);
+    public static final double CHANGE_THRESHOLD = 0.1;
+    private static final double RATE_SMOOTHING = 0.3;
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private final MultiLocationScrapingService multiLocationScrapingService;
+    private final TokenBucket budget;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Consumer<? super Restaurant> sink;
+    private final Clock clock;
+    private final DelayQueue<Location> dueLocations = new DelayQueue<>();
+    private final Map<Location, Double> demandByLocation = new HashMap<>();
+    private double demand;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a RescrapeScheduler.
+     *
+     * @param multiLocationScrapingService the service scraping each due location
+     * @param budget                       the global page request budget
+     * @param minInterval                  the shortest time between two scrapes of a location
+     * @param maxInterval                  the longest time between two scrapes of a location
+     * @param sink                         the consumer receiving every restaurant of every scrape, invoked sequentially
+     */
+    public RescrapeScheduler(MultiLocationScrapingService multiLocationScrapingService, TokenBucket budget,
+                             Duration minInterval, Duration maxInterval, Consumer<? super Restaurant> sink) {
+        this(multiLocationScrapingService, budget, minInterval, maxInterval, sink, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a RescrapeScheduler with an explicit clock.
+     *
+     * @param multiLocationScrapingService the service scraping each due location
+     * @param budget                       the global page request budget
+     * @param minInterval                  the shortest time between two scrapes of a location
+     * @param maxInterval                  the longest time between two scrapes of a location
+     * @param sink                         the consumer receiving every restaurant of every scrape, invoked sequentially
+     * @param clock                        the clock due times are measured with
+     */
+    public RescrapeScheduler(MultiLocationScrapingService multiLocationScrapingService, TokenBucket budget,
+                             Duration minInterval, Duration maxInterval, Consumer<? super Restaurant> sink, Clock clock) {
+        if (minInterval.compareTo(maxInterval) > 0) {
+            throw new IllegalArgumentException("Minimum interval must not exceed the maximum interval");
+        }
+        this.multiLocationScrapingService = multiLocationScrapingService;
+        this.budget = budget;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds locations to the schedule, all due immediately.
+     *
+     * @param payloads the locations to keep fresh
+     */
+    public void schedule(Collection<Payload> payloads) {
+        long now = clock.millis();
+        for (Payload payload : payloads) {
+            Location location = new Location(payload, now);
+            updateDemand(location, maxInterval.toMillis());
+            dueLocations.add(location);
+        }
+    }
+
+    /**
+     * Dispatches locations as they come due until {@link #close()} is called or the thread is interrupted.
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void run() throws InterruptedException {
+        while (!closed) {
+            Location location = dueLocations.poll(1, TimeUnit.SECONDS);
+            if (location == null) {
+                continue;
+            }
+            for (int page = 0; page < location.pages; page++) {
+                budget.acquire();
+            }
+            multiLocationScrapingService.fetchScrapedData(List.of(location.payload)).get(0)
+                    .whenComplete((scrapedData, error) -> onScraped(location, scrapedData, error));
+        }
+    }
+
+    /**
+     * Stops dispatching after the current location. Scrapes already in flight still complete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Returns the factor by which every interval is currently stretched to stay within the budget.
+     *
+     * @return the stretch factor, at least 1
+     */
+    public synchronized double getBudgetStretch() {
+        return Math.max(1.0, demand / budget.getPermitsPerSecond());
+    }
+
+    private synchronized void onScraped(Location location, ScrapedData scrapedData, Throwable error) {
+        long now = clock.millis();
+        if (error != null || scrapedData == null) {
+            logger.error("Re-scrape of {} failed: {}", location.payload.getLatlng(),
+                    error == null ? "no result" : error.getMessage(), error);
+        } else {
+            location.observe(scrapedData, now);
+            scrapedData.restaurantSet().forEach(sink);
+        }
+        long interval = location.interval(minInterval.toMillis(), maxInterval.toMillis());
+        updateDemand(location, interval);
+        long stretched = (long) (interval * getBudgetStretch());
+        location.dueMillis = now + stretched;
+        logger.info("Location {}: change rate {}/min, next scrape in {}s", location.payload.getLatlng(),
+                String.format("%.4f", location.changesPerMinute), stretched / 1000);
+        if (!closed) {
+            dueLocations.add(location);
+        }
+    }
+
+    private synchronized void updateDemand(Location location, long intervalMillis) {
+        double locationDemand = location.pages * 1000.0 / intervalMillis;
+        Double previous = demandByLocation.put(location, locationDemand);
+        demand += locationDemand - (previous == null ? 0 : previous);
+    }
+
+    private static long fingerprint(Restaurant restaurant) {
+        long state = Hashing.start();
+        state = Hashing.update(state, Double.doubleToLongBits(restaurant.estimatedDeliveryFee().orElse(-1.0)));
+        state = Hashing.update(state, restaurant.estimatedDeliveryTimeMinutes());
+        state = Hashing.update(state, restaurant.closingSoonText().orElse(""));
+        return Hashing.mix(state);
+    }
+
+    /**
+     * Scheduling state of one location. Fields are only touched while the location is out of the queue, by the
+     * thread completing its scrape.
+     */
+    private final class Location implements Delayed {
+        private final Payload payload;
+        private Map<String, Long> fingerprints = Map.of();
+        private double changesPerMinute = -1; // Unknown until two scrapes can be compared
+        private long lastScrapeMillis;
+        private long dueMillis;
+        private int pages = 1;
+
+        private Location(Payload payload, long dueMillis) {
+            this.payload = payload;
+            this.dueMillis = dueMillis;
+        }
+
+        private void observe(ScrapedData scrapedData, long now) {
+            Map<String, Long> current = new HashMap<>(scrapedData.restaurantSet().size() * 2);
+            int compared = 0;
+            int changed = 0;
+            for (Restaurant restaurant : scrapedData.restaurantSet()) {
+                long fingerprint = fingerprint(restaurant);
+                current.put(restaurant.restaurantId(), fingerprint);
+                Long previous = fingerprints.get(restaurant.restaurantId());
+                if (previous != null) {
+                    compared++;
+                    if (previous != fingerprint) {
+                        changed++;
+                    }
+                }
+            }
+            if (compared > 0 && lastScrapeMillis > 0) {
+                double minutes = Math.max(1.0, (now - lastScrapeMillis) / (double) MILLIS_PER_MINUTE);
+                double observed = changed / (double) compared / minutes;
+                changesPerMinute = changesPerMinute < 0 ? observed
+                        : RATE_SMOOTHING * observed + (1 - RATE_SMOOTHING) * changesPerMinute;
+            }
+            fingerprints = current;
+            lastScrapeMillis = now;
+            pages = Math.min(current.size(), RestaurantScrapingService.MAX_RESULTS) / RestaurantScrapingService.PAGE_SIZE + 1;
+        }
+
+        private long interval(long minMillis, long maxMillis) {
+            if (changesPerMinute < 0) {
+                return (long) Math.sqrt((double) minMillis * maxMillis); // Between the bounds until the rate is known
+            }
+            if (changesPerMinute == 0) {
+                return maxMillis;
+            }
+            long millis = (long) (CHANGE_THRESHOLD / changesPerMinute * MILLIS_PER_MINUTE);
+            return Math.max(minMillis, Math.min(maxMillis, millis));
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((Location) other).dueMillis);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.webscraper.service;
+
+import org.webscraper.model.Restaurant;
+import org.webscraper.utils.Histogram;
+import org.webscraper.utils.HyperLogLog;
+import org.webscraper.utils.TDigest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Constant-memory statistical profile of scraped restaurants: quantile digests and histograms of the numeric
+ * fields, and distinct-count sketches of cuisines and restaurant IDs. Profiles of different locations merge into
+ * a run-wide profile. Not thread-safe.
+ */
+public class RestaurantProfile {
+    /**
+     * The numeric fields profiled, with the histogram layout used for each.
+     */
+    public enum Metric {
+        RATING(0, 5, 10),
+        DELIVERY_FEE(0, 10, 20),
+        DELIVERY_TIME(0, 120, 24),
+        DISTANCE(0, 20, 20);
+
+        private final double lowerBound;
+        private final double upperBound;
+        private final int bins;
+
+        Metric(double lowerBound, double upperBound, int bins) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.bins = bins;
+        }
+    }
+
+    private final String location;
+    private final Map<Metric, TDigest> digests = new EnumMap<>(Metric.class);
+    private final Map<Metric, Histogram> histograms = new EnumMap<>(Metric.class);
+    private final HyperLogLog cuisines = new HyperLogLog();
+    private final HyperLogLog restaurantIds = new HyperLogLog();
+    private long count;
+
+    /**
+     * Constructs an empty profile.
+     *
+     * @param location the location the profile describes, or a label for an aggregate
+     */
+    public RestaurantProfile(String location) {
+        this.location = location;
+        for (Metric metric : Metric.values()) {
+            digests.put(metric, new TDigest());
+            histograms.put(metric, new Histogram(metric.lowerBound, metric.upperBound, metric.bins));
+        }
+    }
+
+    /**
+     * Adds one restaurant. Restaurants without a delivery fee are left out of the fee distribution.
+     *
+     * @param restaurant the restaurant to profile
+     */
+    public void add(Restaurant restaurant) {
+        count++;
+        record(Metric.RATING, restaurant.rating());
+        record(Metric.DELIVERY_TIME, restaurant.estimatedDeliveryTimeMinutes());
+        record(Metric.DISTANCE, restaurant.distance());
+        restaurant.estimatedDeliveryFee().ifPresent(fee -> record(Metric.DELIVERY_FEE, fee));
+        cuisines.add(restaurant.cuisine());
+        restaurantIds.add(restaurant.restaurantId());
+    }
+
+    /**
+     * Folds another profile into this one.
+     *
+     * @param other the profile to merge
+     * @return this profile
+     */
+    public RestaurantProfile merge(RestaurantProfile other) {
+        count += other.count;
+        for (Metric metric : Metric.values()) {
+            digests.get(metric).merge(other.digests.get(metric));
+            histograms.get(metric).merge(other.histograms.get(metric));
+        }
+        cuisines.merge(other.cuisines);
+        restaurantIds.merge(other.restaurantIds);
+        return this;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Estimates a quantile of a metric.
+     *
+     * @param metric the metric
+     * @param q      the quantile, between 0 and 1
+     * @return the estimated value, or NaN if the metric has no observations
+     */
+    public double quantile(Metric metric, double q) {
+        return digests.get(metric).quantile(q);
+    }
+
+    public Histogram histogram(Metric metric) {
+        return histograms.get(metric);
+    }
+
+    public long estimateDistinctCuisines() {
+        return cuisines.estimate();
+    }
+
+    public long estimateDistinctRestaurants() {
+        return restaurantIds.estimate();
+    }
+
+    /**
+     * Summarizes the profile on one line: counts, distinct estimates and p50/p90/p99 of every metric.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "%d restaurants, ~%d distinct ids, ~%d distinct cuisines",
+                count, estimateDistinctRestaurants(), estimateDistinctCuisines()));
+        for (Metric metric : Metric.values()) {
+            summary.append(String.format(Locale.ROOT, "; %s p50=%.2f p90=%.2f p99=%.2f",
+                    metric, quantile(metric, 0.5), quantile(metric, 0.9), quantile(metric, 0.99)));
+        }
+        return summary.toString();
+    }
+
+    private void record(Metric metric, double value) {
+        digests.get(metric).add(value);
+        histograms.get(metric).add(value);
+    }
+}
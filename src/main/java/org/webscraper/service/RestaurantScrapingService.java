@@ -1,11 +1,12 @@
 package org.webscraper.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.webscraper.client.Client;
+import org.webscraper.client.Deadline;
+import org.webscraper.exceptions.DeadlineExceededException;
 import org.webscraper.model.MetaData;
 import org.webscraper.model.Payload;
 import org.webscraper.model.Restaurant;
@@ -13,7 +14,6 @@ import org.webscraper.model.ScrapedData;
 
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -21,8 +21,9 @@ import java.util.Set;
  */
 public class RestaurantScrapingService {
     private static final Logger logger = LoggerFactory.getLogger(RestaurantScrapingService.class);
-    private static final int PAGE_SIZE = 26;
-    private final ObjectMapper mapper;
+    public static final int PAGE_SIZE = 26;
+    public static final int MAX_RESULTS = 250;
+    private final SearchResultParser parser;
     private final MetaData metaData;
     private final Client client;
 
@@ -35,7 +36,7 @@ public class RestaurantScrapingService {
      */
     public RestaurantScrapingService(Client client, ObjectMapper objectMapper, MetaData metaData) {
         this.client = client;
-        this.mapper = objectMapper;
+        this.parser = new SearchResultParser(objectMapper);
         this.metaData = metaData;
     }
 
@@ -48,41 +49,83 @@ public class RestaurantScrapingService {
      * @throws InterruptedException if the thread is interrupted during operation
      */
     public ScrapedData scrape(Payload payload) throws IOException, InterruptedException {
+        return scrape(payload, Deadline.none());
+    }
+
+    /**
+     * Performs scraping of restaurant data, stopping at the deadline with the pages scraped so far.
+     *
+     * @param payload  the data required for the scraping operation
+     * @param deadline the deadline of the location, passed down to every page request
+     * @return the scraped restaurant data along with associated metadata, marked partial if the deadline cut it short
+     * @throws IOException          if an I/O error occurs during request execution
+     * @throws InterruptedException if the thread is interrupted during operation
+     */
+    public ScrapedData scrape(Payload payload, Deadline deadline) throws IOException, InterruptedException {
         Set<Restaurant> allRestaurants = new HashSet<>();
         int offset = 0;
         int count = 0;
+        boolean partial = false;
 
-        while (count < 250) {
+        while (count < MAX_RESULTS) {
             Payload updatedPayload = prepareExistingPayload(payload, offset);
-            Response response = client.makeRequest(updatedPayload);
-
-            if (response != null && response.isSuccessful()) {
-                JsonNode rootNode = mapper.readTree(response.body().string());
-                JsonNode restaurantsNode = rootNode.path("searchResult").path("searchMerchants");
-
-                if (restaurantsNode.isArray()) {
-                    for (JsonNode node : restaurantsNode) {
-                        if (node.path("id").asText().startsWith("4-")) {
-                            Restaurant restaurant = extractRestaurantData(node);
-                            updateMetaData(restaurant);
-                            allRestaurants.add(restaurant);
-                            count++;
-                        }
-                    }
-                    offset += PAGE_SIZE; // Move to the next page
-                } else {
-                    break; // No more pages available or no results returned
-                }
-            } else {
+            Response response;
+            try {
+                response = client.makeRequest(updatedPayload, deadline);
+            } catch (DeadlineExceededException e) {
+                logger.warn("Deadline reached for {} after {} restaurants", payload.getLatlng(), allRestaurants.size());
+                partial = true;
+                break;
+            }
+
+            if (response == null || !response.isSuccessful()) {
                 logger.error("Failed to fetch data: {}", response);
                 break;
             }
+
+            int before = allRestaurants.size();
+            int merchants;
+            try (response) {
+                merchants = decodePage(response, allRestaurants);
+            }
+            if (merchants <= 0) {
+                break; // No more pages available or no results returned
+            }
+            count += allRestaurants.size() - before;
+            offset += PAGE_SIZE; // Move to the next page
         }
 
-        return new ScrapedData(allRestaurants, metaData);
+        return new ScrapedData(allRestaurants, metaData, partial);
     }
 
-    private Payload prepareExistingPayload(Payload payload, int offset) {
+    /**
+     * Decodes one page response, recording metadata for every restaurant on it.
+     * The caller remains responsible for closing the response.
+     *
+     * @param response the successful page response
+     * @param sink     the set receiving the page's restaurants
+     * @return the number of merchants on the page, or -1 if the page has no merchant array
+     * @throws IOException if the body cannot be read or parsed
+     */
+    int decodePage(Response response, Set<Restaurant> sink) throws IOException {
+        return parser.parse(response.body().byteStream(), restaurant -> {
+            updateMetaData(restaurant);
+            sink.add(restaurant);
+        });
+    }
+
+    /**
+     * Counts a restaurant restored from a sweep journal in the metadata, as if its page had just been decoded.
+     */
+    void recordReplayed(Restaurant restaurant) {
+        updateMetaData(restaurant);
+    }
+
+    MetaData getMetaData() {
+        return metaData;
+    }
+
+    Payload prepareExistingPayload(Payload payload, int offset) {
         return new Payload(
                 payload.getLatlng(),
                 payload.getKeyword(),
@@ -92,120 +135,25 @@ public class RestaurantScrapingService {
         );
     }
 
-    private Restaurant extractRestaurantData(JsonNode node) {
-        String name = node.path("address").path("name").asText();
-        String cuisine = node.path("merchantBrief").path("cuisine").toString();
-        double rating = node.path("merchantBrief").path("rating").asDouble();
-        int estimatedDeliveryTime = node.path("estimatedDeliveryTime").asInt();
-        double distance = node.path("merchantBrief").path("distanceInKm").asDouble();
-        boolean isPromoAvailable = node.path("merchantBrief").path("promo").has("hasPromo");
-        String promoDescription = node.path("merchantBrief").path("promo").path("description").asText();
-        String imageLink = node.path("merchantBrief").path("photoHref").asText();
-        String restaurantId = node.path("id").asText();
-        double latitude = node.path("latlng").path("latitude").asDouble();
-        double longitude = node.path("latlng").path("longitude").asDouble();
-
-        Optional<String> closingSoonText = Optional.ofNullable(node.path("merchantBrief").path("closingSoonText").asText());
-        if (closingSoonText.isEmpty()) {
-            closingSoonText = Optional.empty();
-        }
-        Optional<Double> estimatedDeliveryFee = Optional.empty();
-        String priceDisplay = node.path("estimatedDeliveryFee").path("priceDisplay").asText();
-        if (!priceDisplay.isEmpty()) {
-            try {
-                double fee = Double.parseDouble(priceDisplay.replace("S$", ""));
-                estimatedDeliveryFee = Optional.of(fee);
-            } catch (NumberFormatException e) {
-                logger.error("Error parsing estimated delivery fee: {}", priceDisplay, e);
-            }
-        }
-
-        return new Restaurant(
-                name,
-                cuisine,
-                rating,
-                estimatedDeliveryTime,
-                distance,
-                isPromoAvailable,
-                Optional.ofNullable(promoDescription),
-                imageLink,
-                restaurantId,
-                latitude,
-                longitude,
-                estimatedDeliveryFee,
-                closingSoonText
-        );
-    }
-
     private void updateMetaData(Restaurant restaurant) {
         metaData.incrementTotalCount();
-
-        // Name
-        if (restaurant.name() == null || restaurant.name().trim().isEmpty()) {
-            metaData.incrementNullCount("name");
-        } else {
-            metaData.incrementNotNullCount("name");
-        }
-
-        // Cuisine
-        if (restaurant.cuisine() == null || restaurant.cuisine().trim().isEmpty()) {
-            metaData.incrementNullCount("cuisine");
-        } else {
-            metaData.incrementNotNullCount("cuisine");
-        }
-
-        // Rating
-        metaData.incrementNotNullCount("rating"); // Since the rating has validation, it should never be null.
-
-        // Estimated Delivery Time Minutes
-        metaData.incrementNotNullCount("estimatedDeliveryTimeMinutes"); // Validated to be non-negative, so not null.
-
-        // Distance
-        metaData.incrementNotNullCount("distance"); // Validated to be non-negative, so not null.
-
-        // Promo Availability
-        metaData.incrementNotNullCount("isPromoAvailable"); // This is a primitive boolean, so it's never null.
-
-        // Promo Description
-        if (restaurant.promoDescription().isEmpty()) {
-            metaData.incrementNullCount("promoDescription");
-        } else {
-            metaData.incrementNotNullCount("promoDescription");
-        }
-
-        // Image Link
-        if (restaurant.imageLink() == null || restaurant.imageLink().trim().isEmpty()) {
-            metaData.incrementNullCount("imageLink");
-        } else {
-            metaData.incrementNotNullCount("imageLink");
-        }
-
-        // Restaurant ID
-        if (restaurant.restaurantId() == null || restaurant.restaurantId().trim().isEmpty()) {
-            metaData.incrementNullCount("restaurantId");
-        } else {
-            metaData.incrementNotNullCount("restaurantId");
-        }
-
-        // Latitude
-        metaData.incrementNotNullCount("latitude"); // Assuming always provided as per model constraints.
-
-        // Longitude
-        metaData.incrementNotNullCount("longitude"); // Assuming always provided as per model constraints.
-
-        // Estimated Delivery Fee
-        if (restaurant.estimatedDeliveryFee().isEmpty()) {
-            metaData.incrementNullCount("estimatedDeliveryFee");
-        } else {
-            metaData.incrementNotNullCount("estimatedDeliveryFee");
-        }
-
-        // Closing Soon Text
-        if (restaurant.closingSoonText().isEmpty()) {
-            metaData.incrementNullCount("closingSoonText");
-        } else {
-            metaData.incrementNotNullCount("closingSoonText");
-        }
+        metaData.record(MetaData.Field.NAME, !isBlank(restaurant.name()));
+        metaData.record(MetaData.Field.CUISINE, !isBlank(restaurant.cuisine()));
+        // Rating, delivery time and distance are validated by Restaurant, the promo flag and coordinates are primitives
+        metaData.incrementNotNullCount(MetaData.Field.RATING);
+        metaData.incrementNotNullCount(MetaData.Field.ESTIMATED_DELIVERY_TIME);
+        metaData.incrementNotNullCount(MetaData.Field.DISTANCE);
+        metaData.incrementNotNullCount(MetaData.Field.IS_PROMO_AVAILABLE);
+        metaData.record(MetaData.Field.PROMO_DESCRIPTION, restaurant.promoDescription().isPresent());
+        metaData.record(MetaData.Field.IMAGE_LINK, !isBlank(restaurant.imageLink()));
+        metaData.record(MetaData.Field.RESTAURANT_ID, !isBlank(restaurant.restaurantId()));
+        metaData.incrementNotNullCount(MetaData.Field.LATITUDE);
+        metaData.incrementNotNullCount(MetaData.Field.LONGITUDE);
+        metaData.record(MetaData.Field.ESTIMATED_DELIVERY_FEE, restaurant.estimatedDeliveryFee().isPresent());
+        metaData.record(MetaData.Field.CLOSING_SOON_TEXT, restaurant.closingSoonText().isPresent());
     }
 
-}
\ No newline at end of file
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,46 @@
+package org.webscraper.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.ScrapeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming profiling stage for a {@link ScrapeStream}. Builds a {@link RestaurantProfile} per location while its
+ * pages arrive, logs it when the location completes and merges it into the run-wide profile, so distributions are
+ * available without re-reading the output file. Restaurants returned by several locations count once per location.
+ * Meant to be driven from a single consumer thread, as {@link ScrapeStream#consume} does.
+ */
+public class ScrapeProfiler implements Consumer<ScrapeEvent> {
+    private static final Logger logger = LoggerFactory.getLogger(ScrapeProfiler.class);
+    private final Map<String, RestaurantProfile> locationProfiles = new HashMap<>();
+    private final RestaurantProfile runProfile = new RestaurantProfile(MultiLocationScrapingService.AGGREGATE_LOCATION);
+
+    @Override
+    public void accept(ScrapeEvent event) {
+        switch (event) {
+            case ScrapeEvent.RestaurantScraped scraped ->
+                    locationProfiles.computeIfAbsent(scraped.location(), RestaurantProfile::new).add(scraped.restaurant());
+            case ScrapeEvent.LocationCompleted completed -> {
+                RestaurantProfile profile = locationProfiles.remove(completed.metaData().getLocation());
+                if (profile != null) {
+                    logger.info("Profile for {}: {}", profile.getLocation(), profile.summary());
+                    runProfile.merge(profile);
+                }
+            }
+            case ScrapeEvent.LocationFailed failed -> locationProfiles.remove(failed.location());
+        }
+    }
+
+    /**
+     * Returns the profile of every completed location merged together.
+     *
+     * @return the run-wide profile
+     */
+    public RestaurantProfile getRunProfile() {
+        return runProfile;
+    }
+}
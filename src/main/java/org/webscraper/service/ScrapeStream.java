@@ -0,0 +1,102 @@
+package org.webscraper.service;
+
+import org.webscraper.model.ScrapeEvent;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+/**
+ * A cold {@link Flow.Publisher} of scrape events. Subscribers attach first and {@link #start()} then launches
+ * the scrape, so no event is missed. Delivery is bounded per subscriber: when a subscriber's buffer is full,
+ * the page decode that produced the event waits, which stops that location from requesting further pages
+ * until the consumer catches up.
+ * If a callback passed to {@link #consume} throws, or the stream is {@link #cancel() cancelled}, every location
+ * still queued or in flight is cancelled, so no further pages are requested for a result nobody will read.
+ */
+public class ScrapeStream implements Flow.Publisher<ScrapeEvent> {
+    private final SubmissionPublisher<ScrapeEvent> publisher;
+    private final Consumer<ScrapeStream> launcher;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private boolean started;
+
+    ScrapeStream(int bufferCapacity, Consumer<ScrapeStream> launcher) {
+        this.publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool(), bufferCapacity);
+        this.launcher = launcher;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ScrapeEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Subscribes a callback that is invoked once per event, sequentially.
+     *
+     * @param consumer the callback
+     * @return a future completed when the stream has been fully consumed, or exceptionally if the callback throws,
+     * in which case the scrape is cancelled
+     */
+    public CompletableFuture<Void> consume(Consumer<? super ScrapeEvent> consumer) {
+        CompletableFuture<Void> consumed = publisher.consume(consumer);
+        consumed.whenComplete((ignored, error) -> {
+            if (error != null) {
+                cancel();
+            }
+        });
+        return consumed;
+    }
+
+    /**
+     * Cancels every location of the scrape that has not completed yet. Only the first call has an effect.
+     */
+    public void cancel() {
+        cancelled = true;
+        pending.forEach(future -> future.cancel(true));
+    }
+
+    /**
+     * Tells whether the scrape has been cancelled.
+     *
+     * @return true once {@link #cancel()} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Launches the scrape. Only the first call has an effect.
+     */
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            launcher.accept(this);
+        }
+    }
+
+    /**
+     * Registers a location's future so that cancelling the stream cancels it. A future registered after the stream
+     * was cancelled is cancelled straight away.
+     */
+    <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        pending.add(future);
+        future.whenComplete((ignored, error) -> pending.remove(future));
+        if (cancelled) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    void publish(ScrapeEvent event) {
+        publisher.submit(event);
+    }
+
+    void complete() {
+        publisher.close();
+    }
+}
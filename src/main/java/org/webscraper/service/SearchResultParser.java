@@ -0,0 +1,210 @@
+package org.webscraper.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.Restaurant;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Streaming decoder for Grab search pages.
+ * Walks the response token by token, seeks to {@code searchResult.searchMerchants} and emits one
+ * {@link Restaurant} per merchant without materializing the response as a String or a JsonNode tree.
+ */
+public class SearchResultParser {
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultParser.class);
+    private static final String RESTAURANT_ID_PREFIX = "4-";
+    private final ObjectMapper mapper;
+
+    /**
+     * Constructs a SearchResultParser backed by the given mapper's JSON factory.
+     *
+     * @param mapper the object mapper whose factory creates the streaming parsers
+     */
+    public SearchResultParser(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Parses a search page and hands every restaurant merchant to the sink as soon as it is decoded.
+     *
+     * @param in   the raw response body stream
+     * @param sink the consumer receiving restaurants in page order
+     * @return the number of merchants on the page, or -1 if the page has no merchant array
+     * @throws IOException if the stream cannot be read or is not valid JSON
+     */
+    public int parse(InputStream in, Consumer<Restaurant> sink) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (!seekToMerchants(parser)) {
+                return -1;
+            }
+            int merchants = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                merchants++;
+                MerchantFields fields = readMerchant(parser);
+                if (fields.id.startsWith(RESTAURANT_ID_PREFIX)) {
+                    sink.accept(fields.toRestaurant());
+                }
+            }
+            return merchants;
+        }
+    }
+
+    private boolean seekToMerchants(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("searchResult".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String inner = parser.getCurrentName();
+                    JsonToken innerValue = parser.nextToken();
+                    if ("searchMerchants".equals(inner) && innerValue == JsonToken.START_ARRAY) {
+                        return true;
+                    }
+                    parser.skipChildren();
+                }
+                return false;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private MerchantFields readMerchant(JsonParser parser) throws IOException {
+        MerchantFields fields = new MerchantFields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> fields.id = text(parser);
+                case "estimatedDeliveryTime" -> fields.estimatedDeliveryTime = parser.getValueAsInt(0);
+                case "address" -> readObject(parser, (name, p) -> {
+                    if ("name".equals(name)) fields.name = text(p); else p.skipChildren();
+                });
+                case "latlng" -> readObject(parser, (name, p) -> {
+                    switch (name) {
+                        case "latitude" -> fields.latitude = p.getValueAsDouble(0);
+                        case "longitude" -> fields.longitude = p.getValueAsDouble(0);
+                        default -> p.skipChildren();
+                    }
+                });
+                case "estimatedDeliveryFee" -> readObject(parser, (name, p) -> {
+                    if ("priceDisplay".equals(name)) fields.priceDisplay = text(p); else p.skipChildren();
+                });
+                case "merchantBrief" -> readMerchantBrief(parser, fields);
+                default -> parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+
+    private void readMerchantBrief(JsonParser parser, MerchantFields fields) throws IOException {
+        readObject(parser, (name, p) -> {
+            switch (name) {
+                // The cuisine column keeps the raw JSON of the node, so only this small subtree is materialized.
+                case "cuisine" -> fields.cuisine = mapper.readTree(p).toString();
+                case "rating" -> fields.rating = p.getValueAsDouble(0);
+                case "distanceInKm" -> fields.distance = p.getValueAsDouble(0);
+                case "photoHref" -> fields.imageLink = text(p);
+                case "closingSoonText" -> fields.closingSoonText = text(p);
+                case "promo" -> readObject(p, (promoField, pp) -> {
+                    if ("hasPromo".equals(promoField)) {
+                        fields.isPromoAvailable = true;
+                        pp.skipChildren();
+                    } else if ("description".equals(promoField)) {
+                        fields.promoDescription = text(pp);
+                    } else {
+                        pp.skipChildren();
+                    }
+                });
+                default -> p.skipChildren();
+            }
+        });
+    }
+
+    private void readObject(JsonParser parser, FieldHandler handler) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            handler.handle(field, parser);
+        }
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        if (parser.currentToken().isScalarValue()) {
+            return parser.getValueAsString("");
+        }
+        parser.skipChildren();
+        return "";
+    }
+
+    @FunctionalInterface
+    private interface FieldHandler {
+        void handle(String field, JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Mutable accumulator for one merchant, since fields may arrive in any order.
+     * Defaults mirror the values JsonNode.path(...).asXxx() produced for missing fields.
+     */
+    private static final class MerchantFields {
+        private String id = "";
+        private String name = "";
+        private String cuisine = "";
+        private double rating;
+        private int estimatedDeliveryTime;
+        private double distance;
+        private boolean isPromoAvailable;
+        private String promoDescription = "";
+        private String imageLink = "";
+        private double latitude;
+        private double longitude;
+        private String priceDisplay = "";
+        private String closingSoonText = "";
+
+        private Restaurant toRestaurant() {
+            Optional<Double> estimatedDeliveryFee = Optional.empty();
+            if (!priceDisplay.isEmpty()) {
+                try {
+                    estimatedDeliveryFee = Optional.of(Double.parseDouble(priceDisplay.replace("S$", "")));
+                } catch (NumberFormatException e) {
+                    logger.error("Error parsing estimated delivery fee: {}", priceDisplay, e);
+                }
+            }
+
+            return new Restaurant(
+                    name,
+                    cuisine,
+                    rating,
+                    estimatedDeliveryTime,
+                    distance,
+                    isPromoAvailable,
+                    Optional.of(promoDescription),
+                    imageLink,
+                    id,
+                    latitude,
+                    longitude,
+                    estimatedDeliveryFee,
+                    Optional.of(closingSoonText)
+            );
+        }
+    }
+}
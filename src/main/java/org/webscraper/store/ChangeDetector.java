@@ -0,0 +1,89 @@
+package org.webscraper.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.Restaurant;
+import org.webscraper.model.RestaurantChange;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compares the restaurants of the current run with the previous {@link SnapshotStore} and forwards only
+ * inserts and updates to the sink; unchanged restaurants are dropped. {@link #finish(boolean)} then emits a delete
+ * for every restaurant the run did not see and returns the snapshot to save for the next run.
+ * Meant to be driven from a single consumer thread.
+ */
+public class ChangeDetector implements Consumer<Restaurant> {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeDetector.class);
+    private final SnapshotStore previous;
+    private final Consumer<? super RestaurantChange> sink;
+    private final Map<String, Long> current = new HashMap<>();
+    private long inserted;
+    private long updated;
+    private long unchanged;
+
+    /**
+     * Constructs a detector for one run.
+     *
+     * @param previous the snapshot of the previous run
+     * @param sink     the consumer receiving each change
+     */
+    public ChangeDetector(SnapshotStore previous, Consumer<? super RestaurantChange> sink) {
+        this.previous = previous;
+        this.sink = sink;
+    }
+
+    /**
+     * Classifies one restaurant of the current run. A restaurant seen again later in the run is classified against
+     * the previous snapshot once only.
+     *
+     * @param restaurant the scraped restaurant
+     */
+    @Override
+    public void accept(Restaurant restaurant) {
+        long hash = SnapshotStore.contentHash(restaurant);
+        if (current.put(restaurant.restaurantId(), hash) != null) {
+            return;
+        }
+        Long previousHash = previous.hashOf(restaurant.restaurantId());
+        if (previousHash == null) {
+            inserted++;
+            sink.accept(new RestaurantChange(RestaurantChange.Type.INSERT, restaurant.restaurantId(), restaurant));
+        } else if (previousHash != hash) {
+            updated++;
+            sink.accept(new RestaurantChange(RestaurantChange.Type.UPDATE, restaurant.restaurantId(), restaurant));
+        } else {
+            unchanged++;
+        }
+    }
+
+    /**
+     * Ends the run. After a complete run every restaurant of the previous snapshot that was not seen is reported
+     * as deleted. After a partial run, for example one where some locations failed, unseen restaurants are carried
+     * over into the next snapshot instead, so they are neither reported deleted now nor re-inserted later.
+     *
+     * @param complete whether every location of the run was scraped
+     * @return the snapshot to save for the next run
+     */
+    public SnapshotStore finish(boolean complete) {
+        long deleted = 0;
+        long carried = 0;
+        for (String restaurantId : previous.restaurantIds()) {
+            if (current.containsKey(restaurantId)) {
+                continue;
+            }
+            if (complete) {
+                deleted++;
+                sink.accept(new RestaurantChange(RestaurantChange.Type.DELETE, restaurantId, null));
+            } else {
+                carried++;
+                current.put(restaurantId, previous.hashOf(restaurantId));
+            }
+        }
+        logger.info("Changes since last run: {} inserted, {} updated, {} deleted, {} unchanged, {} not seen in a partial run",
+                inserted, updated, deleted, unchanged, carried);
+        return new SnapshotStore(current);
+    }
+}
@@ -0,0 +1,350 @@
+package org.webscraper.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.FeeTimeSample;
+import org.webscraper.model.Restaurant;
+import org.webscraper.utils.VarInts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Append-only, on-disk history of delivery fee and delivery time per restaurant.
+ * Samples are buffered in memory and appended to one partition file per UTC day on {@link #flush()}, which also
+ * runs whenever the buffer reaches its threshold, so memory stays bounded and a crash loses at most one buffer of
+ * samples. A partition is a sequence of blocks, each holding the samples of one restaurant:
+ * <pre>
+ *   restaurantId (modified UTF-8), body length (int)
+ *   body: sample count, base timestamp, then per sample zigzag varint deltas of timestamp, fee cents and minutes
+ * </pre>
+ * The length prefix lets range scans skip the blocks of other restaurants without decoding them. Hourly runs append
+ * one small block per restaurant; {@link #compact(LocalDate)} rewrites a finished day with one block per restaurant,
+ * where the deltas between consecutive samples are mostly zero and encode in a byte each.
+ * <p>
+ * A crash during a flush can leave a torn block at the end of a partition. Readers stop at the last complete block,
+ * and the first flush to a partition in a process truncates the torn tail before appending after it.
+ */
+public class FeeTimeSeriesStore {
+    private static final Logger logger = LoggerFactory.getLogger(FeeTimeSeriesStore.class);
+    private static final String PARTITION_PREFIX = "fee-time-";
+    private static final String PARTITION_SUFFIX = ".ts";
+    private static final long NO_FEE = -1;
+    private static final int DEFAULT_FLUSH_THRESHOLD = 50_000;
+    private final Path directory;
+    private final Clock clock;
+    private final int flushThreshold;
+    private final List<FeeTimeSample> buffer = new ArrayList<>();
+    private final Set<LocalDate> checkedPartitions = new HashSet<>();
+
+    /**
+     * Opens a store rooted at a directory, creating it if needed.
+     *
+     * @param directory the directory holding the partition files
+     * @throws IOException if the directory cannot be created
+     */
+    public FeeTimeSeriesStore(Path directory) throws IOException {
+        this(directory, Clock.systemUTC());
+    }
+
+    /**
+     * Opens a store that timestamps recorded restaurants with the given clock.
+     *
+     * @param directory the directory holding the partition files
+     * @param clock     the clock used by {@link #record(Restaurant)}
+     * @throws IOException if the directory cannot be created
+     */
+    public FeeTimeSeriesStore(Path directory, Clock clock) throws IOException {
+        this(directory, clock, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Opens a store with an explicit buffer size.
+     *
+     * @param directory      the directory holding the partition files
+     * @param clock          the clock used by {@link #record(Restaurant)}
+     * @param flushThreshold the number of buffered samples that triggers a flush
+     * @throws IOException if the directory cannot be created
+     */
+    public FeeTimeSeriesStore(Path directory, Clock clock, int flushThreshold) throws IOException {
+        if (flushThreshold < 1) {
+            throw new IllegalArgumentException("Flush threshold must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.clock = clock;
+        this.flushThreshold = flushThreshold;
+    }
+
+    /**
+     * Buffers a sample of a scraped restaurant, timestamped now. Suitable as a scrape sink via {@link #recorder()}.
+     *
+     * @param restaurant the scraped restaurant
+     */
+    public void record(Restaurant restaurant) {
+        append(new FeeTimeSample(restaurant.restaurantId(), clock.millis(),
+                restaurant.estimatedDeliveryFee(), restaurant.estimatedDeliveryTimeMinutes()));
+    }
+
+    /**
+     * Returns a sink that records every restaurant it receives.
+     *
+     * @return a consumer delegating to {@link #record(Restaurant)}
+     */
+    public Consumer<Restaurant> recorder() {
+        return this::record;
+    }
+
+    /**
+     * Buffers a sample, flushing the buffer once it reaches the threshold. Flush failures are rethrown unchecked
+     * so the store can be used as a scrape sink.
+     *
+     * @param sample the sample to append
+     */
+    public synchronized void append(FeeTimeSample sample) {
+        buffer.add(sample);
+        if (buffer.size() >= flushThreshold) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error flushing fee/time samples to " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Appends every buffered sample to its day's partition, one block per restaurant and day.
+     *
+     * @throws IOException if a partition cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Map<LocalDate, Map<String, List<FeeTimeSample>>> byDay = new TreeMap<>();
+        for (FeeTimeSample sample : buffer) {
+            byDay.computeIfAbsent(dayOf(sample.timestampMillis()), day -> new TreeMap<>())
+                    .computeIfAbsent(sample.restaurantId(), id -> new ArrayList<>())
+                    .add(sample);
+        }
+        for (Map.Entry<LocalDate, Map<String, List<FeeTimeSample>>> day : byDay.entrySet()) {
+            if (checkedPartitions.add(day.getKey())) {
+                truncateTornBlock(partition(day.getKey()));
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    partition(day.getKey()), StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                writeBlocks(out, day.getValue());
+            }
+        }
+        logger.info("{} fee/time samples appended to {}", buffer.size(), directory);
+        buffer.clear();
+    }
+
+    /**
+     * Scans the history of one restaurant.
+     *
+     * @param restaurantId the restaurant's ID
+     * @param from         the inclusive start of the range
+     * @param to           the exclusive end of the range
+     * @return the samples in time order
+     * @throws IOException if a partition cannot be read
+     */
+    public List<FeeTimeSample> scan(String restaurantId, Instant from, Instant to) throws IOException {
+        List<FeeTimeSample> samples = new ArrayList<>();
+        scan(Set.of(restaurantId), from, to, samples::add);
+        samples.sort(Comparator.comparingLong(FeeTimeSample::timestampMillis));
+        return samples;
+    }
+
+    /**
+     * Scans the history of a group of restaurants, decoding only their blocks of the partitions in range.
+     * Samples are delivered partition by partition in block order; buffered samples that were not flushed are
+     * not included.
+     *
+     * @param restaurantIds the restaurants to include
+     * @param from          the inclusive start of the range
+     * @param to            the exclusive end of the range
+     * @param sink          the consumer receiving each matching sample
+     * @throws IOException if a partition cannot be read
+     */
+    public void scan(Set<String> restaurantIds, Instant from, Instant to, Consumer<? super FeeTimeSample> sink) throws IOException {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        for (LocalDate day = dayOf(fromMillis); !day.isAfter(dayOf(toMillis - 1)); day = day.plusDays(1)) {
+            Path partition = partition(day);
+            if (!Files.exists(partition)) {
+                continue;
+            }
+            readBlocks(partition, restaurantIds::contains, sample -> {
+                if (sample.timestampMillis() >= fromMillis && sample.timestampMillis() < toMillis) {
+                    sink.accept(sample);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rewrites a day's partition with a single block per restaurant, replacing the file atomically.
+     *
+     * @param day the day to compact
+     * @throws IOException if the partition cannot be read or written
+     */
+    public synchronized void compact(LocalDate day) throws IOException {
+        Path partition = partition(day);
+        if (!Files.exists(partition)) {
+            return;
+        }
+        Map<String, List<FeeTimeSample>> byRestaurant = new TreeMap<>();
+        readBlocks(partition, id -> true,
+                sample -> byRestaurant.computeIfAbsent(sample.restaurantId(), id -> new ArrayList<>()).add(sample));
+        byRestaurant.values().forEach(samples -> samples.sort(Comparator.comparingLong(FeeTimeSample::timestampMillis)));
+        Path temp = Files.createTempFile(directory, partition.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writeBlocks(out, byRestaurant);
+            }
+            Files.move(temp, partition, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Cuts a partition back to its last complete block, so blocks appended later are not hidden behind a torn one.
+     */
+    private static void truncateTornBlock(Path partition) throws IOException {
+        if (!Files.exists(partition)) {
+            return;
+        }
+        long validLength = readBlocks(partition, id -> false, sample -> { });
+        if (validLength < Files.size(partition)) {
+            try (FileChannel channel = FileChannel.open(partition, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+            logger.warn("Truncated torn block at the end of {} to {} bytes", partition, validLength);
+        }
+    }
+
+    private void writeBlocks(DataOutputStream out, Map<String, List<FeeTimeSample>> byRestaurant) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        for (Map.Entry<String, List<FeeTimeSample>> restaurant : byRestaurant.entrySet()) {
+            body.reset();
+            encodeBody(bodyOut, restaurant.getValue());
+            out.writeUTF(restaurant.getKey());
+            out.writeInt(body.size());
+            body.writeTo(out);
+        }
+    }
+
+    private static void encodeBody(DataOutputStream out, List<FeeTimeSample> samples) throws IOException {
+        VarInts.write(out, samples.size());
+        long previousTimestamp = samples.get(0).timestampMillis();
+        long previousFee = 0;
+        long previousMinutes = 0;
+        out.writeLong(previousTimestamp);
+        for (FeeTimeSample sample : samples) {
+            long fee = sample.estimatedDeliveryFee().map(value -> Math.round(value * 100)).orElse(NO_FEE);
+            VarInts.write(out, VarInts.zigzag(sample.timestampMillis() - previousTimestamp));
+            VarInts.write(out, VarInts.zigzag(fee - previousFee));
+            VarInts.write(out, VarInts.zigzag(sample.estimatedDeliveryTimeMinutes() - previousMinutes));
+            previousTimestamp = sample.timestampMillis();
+            previousFee = fee;
+            previousMinutes = sample.estimatedDeliveryTimeMinutes();
+        }
+    }
+
+    /**
+     * Decodes the blocks of the included restaurants and returns the length of the partition up to its last
+     * complete block. A block cut short by a crash during a flush ends the read instead of failing it.
+     */
+    private static long readBlocks(Path partition, Predicate<String> include,
+                                   Consumer<? super FeeTimeSample> sink) throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(partition)))) {
+            long size = Files.size(partition);
+            while (validLength < size) {
+                String restaurantId;
+                int length;
+                byte[] body = null;
+                try {
+                    restaurantId = in.readUTF();
+                    length = in.readInt();
+                    if (include.test(restaurantId)) {
+                        body = new byte[length];
+                        in.readFully(body);
+                    } else {
+                        in.skipNBytes(length);
+                    }
+                } catch (EOFException e) {
+                    logger.warn("Ignoring torn block at byte {} of {}", validLength, partition);
+                    return validLength;
+                }
+                if (body != null) {
+                    decodeBody(restaurantId, ByteBuffer.wrap(body), sink);
+                }
+                validLength += 2 + utfLength(restaurantId) + Integer.BYTES + length;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Returns the number of bytes {@link DataOutputStream#writeUTF} encodes a string in, excluding its length prefix.
+     */
+    private static int utfLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return length;
+    }
+
+    private static void decodeBody(String restaurantId, ByteBuffer body, Consumer<? super FeeTimeSample> sink) {
+        long count = VarInts.read(body);
+        long timestamp = body.getLong();
+        long fee = 0;
+        long minutes = 0;
+        for (long i = 0; i < count; i++) {
+            timestamp += VarInts.unzigzag(VarInts.read(body));
+            fee += VarInts.unzigzag(VarInts.read(body));
+            minutes += VarInts.unzigzag(VarInts.read(body));
+            sink.accept(new FeeTimeSample(restaurantId, timestamp,
+                    fee == NO_FEE ? Optional.empty() : Optional.of(fee / 100.0), (int) minutes));
+        }
+    }
+
+    private Path partition(LocalDate day) {
+        return directory.resolve(PARTITION_PREFIX + day + PARTITION_SUFFIX);
+    }
+
+    private static LocalDate dayOf(long timestampMillis) {
+        return Instant.ofEpochMilli(timestampMillis).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
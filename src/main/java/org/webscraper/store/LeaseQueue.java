@@ -0,0 +1,328 @@
+package org.webscraper.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.GeoTile;
+import org.webscraper.utils.FileUtil;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Work queue of tile batches shared by several worker processes through a directory, on one host or on hosts
+ * mounting the same file system. No broker is needed: every state change is an atomic rename, so exactly one
+ * worker wins each claim.
+ * <ul>
+ *     <li>{@code pending/}: batches waiting for a worker, one JSON file each</li>
+ *     <li>{@code leased/}: claimed batches, named after the batch and the worker holding it. The file's
+ *     modification time is the last heartbeat; a lease not renewed within the lease duration has expired and the
+ *     batch is moved back to {@code pending/} by whichever worker notices first. An expired lease counts as a
+ *     failed attempt, so a batch that keeps crashing its worker still ends up in {@code failed/}.</li>
+ *     <li>{@code tmp/}: files being written, and expired leases while they are being reclaimed</li>
+ *     <li>{@code done/}: completed batches</li>
+ *     <li>{@code failed/}: batches that failed {@link #MAX_ATTEMPTS} times</li>
+ *     <li>{@code output/}: one columnar segment of restaurants per completed batch, see {@link ShardMerger}</li>
+ * </ul>
+ * Expiry compares modification times with this process's clock, so clocks of hosts sharing the directory must
+ * agree to well within the lease duration.
+ */
+public class LeaseQueue {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseQueue.class);
+    public static final int MAX_ATTEMPTS = 3;
+    private static final String BATCH_SUFFIX = ".json";
+    private static final String OWNER_SEPARATOR = "@";
+    private final Path pending;
+    private final Path leased;
+    private final Path done;
+    private final Path failed;
+    private final Path output;
+    private final Path temp;
+    private final Duration leaseDuration;
+    private final Clock clock;
+    private final ObjectMapper mapper = FileUtil.mapper();
+
+    /**
+     * A batch of tiles as stored in the queue.
+     *
+     * @param id       the batch id, unique within the queue
+     * @param attempts how many leases of this batch have failed or expired so far
+     * @param tiles    the tiles to sweep, each subdivided by the worker wherever the result cap is hit
+     */
+    public record Batch(String id, int attempts, List<GeoTile> tiles) {
+    }
+
+    /**
+     * A batch claimed by one worker.
+     *
+     * @param batch  the claimed batch
+     * @param worker the worker holding the lease
+     * @param file   the lease file under {@code leased/}
+     */
+    public record Lease(Batch batch, String worker, Path file) {
+    }
+
+    /**
+     * Opens a queue, creating its directories if needed.
+     *
+     * @param root          the shared queue directory
+     * @param leaseDuration how long a lease stays valid without a heartbeat
+     * @throws IOException if the directories cannot be created
+     */
+    public LeaseQueue(Path root, Duration leaseDuration) throws IOException {
+        this(root, leaseDuration, Clock.systemUTC());
+    }
+
+    /**
+     * Opens a queue with an explicit clock.
+     *
+     * @param root          the shared queue directory
+     * @param leaseDuration how long a lease stays valid without a heartbeat
+     * @param clock         the clock lease expiry is measured with
+     * @throws IOException if the directories cannot be created
+     */
+    public LeaseQueue(Path root, Duration leaseDuration, Clock clock) throws IOException {
+        this.pending = Files.createDirectories(root.resolve("pending"));
+        this.leased = Files.createDirectories(root.resolve("leased"));
+        this.done = Files.createDirectories(root.resolve("done"));
+        this.failed = Files.createDirectories(root.resolve("failed"));
+        this.output = Files.createDirectories(root.resolve("output"));
+        this.temp = Files.createDirectories(root.resolve("tmp"));
+        this.leaseDuration = leaseDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a batch to the queue. The file is written elsewhere and renamed into {@code pending/}, so workers never
+     * see a partial batch.
+     *
+     * @param id    the batch id, which must not contain {@code @}
+     * @param tiles the tiles of the batch
+     * @throws IOException if the batch cannot be written or a batch with this id is already pending
+     */
+    public void enqueue(String id, List<GeoTile> tiles) throws IOException {
+        if (id.contains(OWNER_SEPARATOR)) {
+            throw new IllegalArgumentException("Batch id must not contain " + OWNER_SEPARATOR + ": " + id);
+        }
+        writeAtomically(new Batch(id, 0, tiles), pending.resolve(id + BATCH_SUFFIX));
+    }
+
+    /**
+     * Claims the oldest pending batch for a worker, after moving expired leases back to pending.
+     *
+     * @param worker the claiming worker's id, which must not contain {@code @}
+     * @return the lease, or empty if no batch is pending
+     * @throws IOException if the queue cannot be read
+     */
+    public Optional<Lease> claim(String worker) throws IOException {
+        reclaimExpired();
+        for (Path candidate : list(pending)) {
+            String id = batchId(candidate);
+            Path leaseFile = leased.resolve(id + OWNER_SEPARATOR + worker + BATCH_SUFFIX);
+            Batch batch;
+            try {
+                // The heartbeat clock starts now, not when the batch was enqueued. The rename keeps the modification
+                // time, so touching first means the lease never shows up in leased/ looking expired
+                Files.setLastModifiedTime(candidate, FileTime.from(clock.instant()));
+                Files.move(candidate, leaseFile, StandardCopyOption.ATOMIC_MOVE);
+                batch = read(leaseFile);
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                continue; // Another worker claimed it first
+            }
+            logger.info("Worker {} leased batch {} ({} tiles)", worker, id, batch.tiles().size());
+            return Optional.of(new Lease(batch, worker, leaseFile));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Extends a lease by another lease duration.
+     *
+     * @param lease the lease to renew
+     * @return false if the lease had already expired and was reclaimed
+     * @throws IOException if the lease file cannot be touched
+     */
+    public boolean renew(Lease lease) throws IOException {
+        try {
+            Files.setLastModifiedTime(lease.file(), FileTime.from(clock.instant()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Marks a leased batch as done.
+     *
+     * @param lease the lease of the finished batch
+     * @return false if the lease had expired and the batch was reclaimed, in which case it will be scraped again
+     * @throws IOException if the lease file cannot be moved
+     */
+    public boolean complete(Lease lease) throws IOException {
+        try {
+            Files.move(lease.file(), done.resolve(lease.batch().id() + BATCH_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            logger.warn("Lease of batch {} by worker {} expired before it completed", lease.batch().id(), lease.worker());
+            return false;
+        }
+    }
+
+    /**
+     * Gives a batch back after a failed attempt. It returns to {@code pending/} until it has failed
+     * {@link #MAX_ATTEMPTS} times and then moves to {@code failed/}.
+     *
+     * @param lease the lease of the failed batch
+     * @throws IOException if the batch cannot be rewritten
+     */
+    public void release(Lease lease) throws IOException {
+        if (!Files.exists(lease.file())) {
+            return; // Already reclaimed, and possibly leased again
+        }
+        requeue(lease.batch());
+        Files.deleteIfExists(lease.file());
+    }
+
+    /**
+     * Counts every lease whose heartbeat is older than the lease duration as a failed attempt and moves its batch
+     * back to {@code pending/}, or to {@code failed/} once it has used up its attempts.
+     * <p>
+     * The lease file is touched and renamed into {@code tmp/}, so exactly one worker reclaims it, and is then
+     * rewritten with the attempt counted. A reclaim file left in {@code tmp/} for longer than a lease duration belongs
+     * to a worker that died in between and is requeued by the next caller.
+     *
+     * @return the number of leases reclaimed by this call
+     * @throws IOException if the queue cannot be read
+     */
+    public int reclaimExpired() throws IOException {
+        FileTime expiredBefore = FileTime.from(clock.instant().minus(leaseDuration));
+        int reclaimed = 0;
+        for (Path leaseFile : list(leased)) {
+            try {
+                if (Files.getLastModifiedTime(leaseFile).compareTo(expiredBefore) >= 0) {
+                    continue;
+                }
+                Path reclaim = temp.resolve(leaseFile.getFileName());
+                // Touched before the rename, which keeps the modification time, so the reclaim file never looks
+                // orphaned to other workers while this one is still requeueing it
+                Files.setLastModifiedTime(leaseFile, FileTime.from(clock.instant()));
+                Files.move(leaseFile, reclaim, StandardCopyOption.ATOMIC_MOVE);
+                logger.warn("Reclaimed expired lease {}", leaseFile.getFileName());
+                requeue(reclaim);
+                reclaimed++;
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // Completed, renewed away or reclaimed by another worker in the meantime
+            }
+        }
+        for (Path orphan : list(temp)) {
+            try {
+                if (Files.getLastModifiedTime(orphan).compareTo(expiredBefore) < 0) {
+                    requeue(orphan);
+                }
+            } catch (NoSuchFileException e) {
+                // Requeued by another worker in the meantime
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Tells whether every batch has been completed or given up on.
+     *
+     * @return true if no batch is pending, leased or being reclaimed
+     * @throws IOException if the queue cannot be read
+     */
+    public boolean isDrained() throws IOException {
+        // A reclaim file whose worker died is requeued once it is a lease duration old, so it is still work to wait for
+        return list(pending).isEmpty() && list(leased).isEmpty() && list(temp).isEmpty();
+    }
+
+    /**
+     * Returns the number of batches in each state, for progress logging.
+     *
+     * @return pending, leased, done and failed counts
+     * @throws IOException if the queue cannot be read
+     */
+    public int[] counts() throws IOException {
+        return new int[]{list(pending).size(), list(leased).size(), list(done).size(), list(failed).size()};
+    }
+
+    /**
+     * Returns the directory holding batches that used up their attempts.
+     *
+     * @return the failed directory
+     */
+    public Path failedDirectory() {
+        return failed;
+    }
+
+    /**
+     * Returns the directory workers write their per-batch outputs to.
+     *
+     * @return the output directory
+     */
+    public Path outputDirectory() {
+        return output;
+    }
+
+    /**
+     * Returns a scratch directory on the queue's file system, from which files can be renamed into place atomically.
+     *
+     * @return the temporary directory
+     */
+    public Path tempDirectory() {
+        return temp;
+    }
+
+    private void requeue(Path reclaim) throws IOException {
+        requeue(read(reclaim));
+        Files.deleteIfExists(reclaim);
+    }
+
+    /**
+     * Reads a batch file. Unlike reading through a {@link java.io.File}, a file another worker has just moved away
+     * fails with {@link NoSuchFileException}, which callers treat as having lost the race for it.
+     */
+    private Batch read(Path file) throws IOException {
+        return mapper.readValue(Files.readAllBytes(file), Batch.class);
+    }
+
+    private void requeue(Batch batch) throws IOException {
+        Batch retried = new Batch(batch.id(), batch.attempts() + 1, batch.tiles());
+        Path target = retried.attempts() >= MAX_ATTEMPTS ? failed : pending;
+        writeAtomically(retried, target.resolve(batch.id() + BATCH_SUFFIX));
+        logger.warn("Batch {} failed attempt {} and was moved to {}", batch.id(), retried.attempts(), target.getFileName());
+    }
+
+    private void writeAtomically(Batch batch, Path target) throws IOException {
+        Path file = Files.createTempFile(temp, batch.id(), ".tmp");
+        try {
+            mapper.writeValue(file.toFile(), batch);
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(BATCH_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static String batchId(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - BATCH_SUFFIX.length());
+    }
+}
@@ -0,0 +1,327 @@
+package org.webscraper.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.Restaurant;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-optimized restaurant lookup file that any number of processes can map with {@link FileChannel#map} and
+ * query in place, with no parsing on open.
+ * <pre>
+ *   header   magic, version, record count, slot count, slot/record/string region offsets
+ *   slots    open-addressing table of record numbers, -1 for empty
+ *   records  fixed-width: ID hash, ID and name references, fee, delivery time, rating, latitude, longitude
+ *   strings  UTF-8 bytes of IDs and names
+ * </pre>
+ * Files are written once by {@link Writer#commit()} and replaced atomically, so readers that mapped the previous file keep a
+ * consistent view until they reopen. Lookups use absolute buffer reads and are safe from any number of threads.
+ */
+public class MappedRestaurantStore {
+    private static final Logger logger = LoggerFactory.getLogger(MappedRestaurantStore.class);
+    private static final int MAGIC = 0x52534D50; // "RSMP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 3 * Long.BYTES;
+    private static final int RECORD_BYTES = 5 * Integer.BYTES + Double.BYTES + Integer.BYTES + 3 * Double.BYTES;
+    private static final int HASH = 0;
+    private static final int ID_OFFSET = 4;
+    private static final int ID_LENGTH = 8;
+    private static final int NAME_OFFSET = 12;
+    private static final int NAME_LENGTH = 16;
+    private static final int FEE = 20;
+    private static final int MINUTES = 28;
+    private static final int RATING = 32;
+    private static final int LATITUDE = 40;
+    private static final int LONGITUDE = 48;
+    private static final int EMPTY = -1;
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int slotCount;
+    private final long slotsOffset;
+    private final long recordsOffset;
+    private final long stringsOffset;
+
+    private MappedRestaurantStore(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " restaurant lookup file");
+        }
+        this.recordCount = buffer.getInt(8);
+        this.slotCount = buffer.getInt(12);
+        this.slotsOffset = buffer.getLong(16);
+        this.recordsOffset = buffer.getLong(24);
+        this.stringsOffset = buffer.getLong(32);
+    }
+
+    /**
+     * Maps a lookup file read-only. The mapping stays valid after the file is replaced or the channel is closed.
+     *
+     * @param path the lookup file
+     * @return the mapped store
+     * @throws IOException if the file cannot be mapped or is not a lookup file
+     */
+    public static MappedRestaurantStore open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedRestaurantStore(buffer);
+        }
+    }
+
+    /**
+     * Creates a writer that builds a lookup file from the restaurants it receives.
+     *
+     * @param path the lookup file to create or replace on commit
+     * @return the writer
+     */
+    public static Writer writer(Path path) {
+        return new Writer(path);
+    }
+
+    /**
+     * Finds a restaurant's record.
+     *
+     * @param restaurantId the restaurant's ID
+     * @return the record number, or -1 if absent
+     */
+    public int find(String restaurantId) {
+        int hash = hash(restaurantId);
+        int mask = slotCount - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int record = buffer.getInt(Math.toIntExact(slotsOffset + (long) slot * Integer.BYTES));
+            if (record == EMPTY) {
+                return -1;
+            }
+            int base = recordBase(record);
+            if (buffer.getInt(base + HASH) == hash
+                    && stringEquals(buffer.getInt(base + ID_OFFSET), buffer.getInt(base + ID_LENGTH), restaurantId)) {
+                return record;
+            }
+        }
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    public boolean hasEstimatedDeliveryFee(int record) {
+        return !Double.isNaN(estimatedDeliveryFee(record));
+    }
+
+    /**
+     * Returns the delivery fee of a record.
+     *
+     * @param record a record number returned by {@link #find(String)}
+     * @return the fee, or NaN if the restaurant showed none
+     */
+    public double estimatedDeliveryFee(int record) {
+        return buffer.getDouble(recordBase(record) + FEE);
+    }
+
+    public int estimatedDeliveryTimeMinutes(int record) {
+        return buffer.getInt(recordBase(record) + MINUTES);
+    }
+
+    public double rating(int record) {
+        return buffer.getDouble(recordBase(record) + RATING);
+    }
+
+    public double latitude(int record) {
+        return buffer.getDouble(recordBase(record) + LATITUDE);
+    }
+
+    public double longitude(int record) {
+        return buffer.getDouble(recordBase(record) + LONGITUDE);
+    }
+
+    public String restaurantId(int record) {
+        int base = recordBase(record);
+        return readString(buffer.getInt(base + ID_OFFSET), buffer.getInt(base + ID_LENGTH));
+    }
+
+    public String name(int record) {
+        int base = recordBase(record);
+        return readString(buffer.getInt(base + NAME_OFFSET), buffer.getInt(base + NAME_LENGTH));
+    }
+
+    private int recordBase(int record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + record + " out of bounds for " + recordCount + " records");
+        }
+        return Math.toIntExact(recordsOffset + (long) record * RECORD_BYTES);
+    }
+
+    /**
+     * Compares UTF-8 bytes in the string region with a String, char by char for ASCII so lookups do not allocate.
+     */
+    private boolean stringEquals(int offset, int length, String value) {
+        int start = Math.toIntExact(stringsOffset + offset);
+        if (length == value.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                } else if (buffer.get(start + i) != c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(Math.toIntExact(stringsOffset + offset), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * String.hashCode is specified by the language, so every process computes the same slot; the multiply spreads
+     * IDs that differ only in their last characters.
+     */
+    private static int hash(String restaurantId) {
+        int hash = restaurantId.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Collects restaurants and writes the lookup file on {@link #commit()}. A restaurant received twice keeps its last
+     * values. Closing without a commit discards what was collected and leaves the previous file in place, so a run
+     * that fails or is incomplete never replaces a good lookup file. Appends are synchronized so the writer can sit
+     * in a concurrent sink chain.
+     */
+    public static final class Writer implements Consumer<Restaurant>, Closeable {
+        private final Path path;
+        private final List<String> restaurantIds = new ArrayList<>();
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        private boolean closed;
+
+        private Writer(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public synchronized void accept(Restaurant restaurant) {
+            if (closed) {
+                throw new IllegalStateException("Lookup file writer for " + path + " is already committed or closed");
+            }
+            record.clear();
+            record.putInt(HASH, hash(restaurant.restaurantId()));
+            putString(ID_OFFSET, ID_LENGTH, restaurant.restaurantId());
+            putString(NAME_OFFSET, NAME_LENGTH, restaurant.name());
+            record.putDouble(FEE, restaurant.estimatedDeliveryFee().orElse(Double.NaN));
+            record.putInt(MINUTES, restaurant.estimatedDeliveryTimeMinutes());
+            record.putDouble(RATING, restaurant.rating());
+            record.putDouble(LATITUDE, restaurant.latitude());
+            record.putDouble(LONGITUDE, restaurant.longitude());
+            records.write(record.array(), 0, RECORD_BYTES);
+            restaurantIds.add(restaurant.restaurantId());
+        }
+
+        /**
+         * Builds the slot table and writes the file next to its final path, then moves it into place.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        public synchronized void commit() throws IOException {
+            if (closed) {
+                throw new IllegalStateException("Lookup file writer for " + path + " is already committed or closed");
+            }
+            closed = true;
+            int[] slots = buildSlots();
+            long slotsOffset = HEADER_BYTES;
+            long recordsOffset = slotsOffset + (long) slots.length * Integer.BYTES;
+            long stringsOffset = recordsOffset + records.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(restaurantIds.size()).putInt(slots.length)
+                    .putLong(slotsOffset).putLong(recordsOffset).putLong(stringsOffset).flip();
+            ByteBuffer slotBytes = ByteBuffer.allocate(slots.length * Integer.BYTES);
+            slotBytes.asIntBuffer().put(slots);
+
+            Path absolute = path.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    writeFully(channel, header);
+                    writeFully(channel, slotBytes);
+                    writeFully(channel, ByteBuffer.wrap(records.toByteArray()));
+                    writeFully(channel, ByteBuffer.wrap(strings.toByteArray()));
+                    channel.force(true);
+                }
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            logger.info("{} restaurants written to lookup file {}", restaurantIds.size(), path);
+        }
+
+        /**
+         * Discards the collected restaurants unless {@link #commit()} was called. The file on disk is left untouched.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            logger.info("Lookup file {} not replaced, {} collected restaurants discarded", path, restaurantIds.size());
+        }
+
+        private int[] buildSlots() {
+            int[] slots = new int[Integer.highestOneBit(Math.max(2, restaurantIds.size()) * 2 - 1) << 1];
+            Arrays.fill(slots, EMPTY);
+            int mask = slots.length - 1;
+            for (int record = 0; record < restaurantIds.size(); record++) {
+                String restaurantId = restaurantIds.get(record);
+                int slot = hash(restaurantId) & mask;
+                while (slots[slot] != EMPTY && !restaurantIds.get(slots[slot]).equals(restaurantId)) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = record;
+            }
+            return slots;
+        }
+
+        private void putString(int offsetField, int lengthField, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            record.putInt(offsetField, strings.size());
+            record.putInt(lengthField, bytes.length);
+            strings.write(bytes, 0, bytes.length);
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+    }
+}
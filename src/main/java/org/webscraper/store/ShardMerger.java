@@ -0,0 +1,59 @@
+package org.webscraper.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.Restaurant;
+import org.webscraper.utils.ColumnarSnapshotReader;
+import org.webscraper.utils.NdjsonGzipWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Merges the per-batch outputs of a sharded sweep into one GZIP compressed NDJSON file.
+ * Neighbouring locations of different batches overlap, and a reclaimed batch may have been written by two
+ * workers, so every restaurantId is kept once, from the first segment in file name order that holds it.
+ * Segments are read one at a time, so only the ids stay in memory.
+ */
+public class ShardMerger {
+    private static final Logger logger = LoggerFactory.getLogger(ShardMerger.class);
+    public static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * Merges every segment in a directory.
+     *
+     * @param segments   the directory of per-batch segments
+     * @param outputFile the merged NDJSON.gz file
+     * @return the number of distinct restaurants written
+     * @throws IOException if a segment cannot be read or the output cannot be written
+     */
+    public static long merge(Path segments, String outputFile) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(segments)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        Set<String> seenIds = new HashSet<>();
+        long duplicates = 0;
+        try (NdjsonGzipWriter writer = new NdjsonGzipWriter(outputFile)) {
+            for (Path file : files) {
+                try (ColumnarSnapshotReader reader = new ColumnarSnapshotReader(file.toString())) {
+                    for (Restaurant restaurant : reader.readAll()) {
+                        if (seenIds.add(restaurant.restaurantId())) {
+                            writer.write(restaurant);
+                        } else {
+                            duplicates++;
+                        }
+                    }
+                }
+            }
+        }
+        logger.info("Merged {} segments into {}: {} restaurants, {} duplicates dropped",
+                files.size(), outputFile, seenIds.size(), duplicates);
+        return seenIds.size();
+    }
+}
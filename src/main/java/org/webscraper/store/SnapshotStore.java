@@ -0,0 +1,127 @@
+package org.webscraper.store;
+
+import org.webscraper.model.Restaurant;
+import org.webscraper.utils.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local snapshot of the previous run: a content hash per restaurantId, which is all that is needed to tell
+ * whether a restaurant was inserted, updated or removed since then.
+ * The file is a record count followed by (restaurantId, hash) pairs and is replaced atomically on save.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x52534E48; // "RSNH"
+    private final Map<String, Long> hashes;
+
+    /**
+     * Constructs a snapshot from restaurantId to content hash entries.
+     *
+     * @param hashes the entries, copied
+     */
+    public SnapshotStore(Map<String, Long> hashes) {
+        this.hashes = new HashMap<>(hashes);
+    }
+
+    /**
+     * Loads a snapshot, or returns an empty one when the file does not exist yet.
+     *
+     * @param path the snapshot file
+     * @return the loaded snapshot
+     * @throws IOException if the file exists but cannot be read
+     */
+    public static SnapshotStore load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new SnapshotStore(Map.of());
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a restaurant snapshot");
+            }
+            int count = in.readInt();
+            Map<String, Long> hashes = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                hashes.put(in.readUTF(), in.readLong());
+            }
+            return new SnapshotStore(hashes);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it over the target, so a crash never leaves a
+     * half-written snapshot behind.
+     *
+     * @param path the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(hashes.size());
+                for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the content hash recorded for a restaurant.
+     *
+     * @param restaurantId the restaurant's ID
+     * @return the hash, or null if the restaurant is not in the snapshot
+     */
+    public Long hashOf(String restaurantId) {
+        return hashes.get(restaurantId);
+    }
+
+    public Set<String> restaurantIds() {
+        return Collections.unmodifiableSet(hashes.keySet());
+    }
+
+    public int size() {
+        return hashes.size();
+    }
+
+    /**
+     * Hashes the content of a restaurant. Distance, delivery fee and delivery time are left out because they depend
+     * on the query location, and which overlapping tile's copy of a merchant arrives first varies between runs, so
+     * an unchanged merchant would otherwise look changed. They are still part of the emitted record, and their
+     * changes over time are kept by {@link FeeTimeSeriesStore}.
+     *
+     * @param restaurant the restaurant to hash
+     * @return the 64-bit content hash
+     */
+    public static long contentHash(Restaurant restaurant) {
+        long state = Hashing.start();
+        state = Hashing.update(state, restaurant.restaurantId());
+        state = Hashing.update(state, restaurant.name());
+        state = Hashing.update(state, restaurant.cuisine());
+        state = Hashing.update(state, Double.doubleToLongBits(restaurant.rating()));
+        state = Hashing.update(state, restaurant.isPromoAvailable() ? 1 : 0);
+        state = Hashing.update(state, restaurant.promoDescription().orElse(null));
+        state = Hashing.update(state, restaurant.imageLink());
+        state = Hashing.update(state, Double.doubleToLongBits(restaurant.latitude()));
+        state = Hashing.update(state, Double.doubleToLongBits(restaurant.longitude()));
+        state = Hashing.update(state, restaurant.closingSoonText().orElse(null));
+        return Hashing.mix(state);
+    }
+}
@@ -0,0 +1,239 @@
+package org.webscraper.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.Payload;
+import org.webscraper.model.Restaurant;
+import org.webscraper.utils.ColumnarSnapshotReader;
+import org.webscraper.utils.ColumnarSnapshotWriter;
+import org.webscraper.utils.FileUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Durable progress log of a sweep at page granularity, so a run that dies halfway can resume where it stopped.
+ * Every completed page appends one NDJSON line to {@code journal.ndjson} naming the location, the page offset and
+ * whether the location is done. The restaurants the page added are written first to their own columnar segment
+ * file, which is forced to disk along with its directory entry before the line is appended, so a line never refers
+ * to a segment that is not complete, even after an OS crash. A restarted run replays the journaled pages of
+ * each location from their segments instead of requesting them again and continues with the first missing page.
+ */
+public class SweepJournal {
+    private static final Logger logger = LoggerFactory.getLogger(SweepJournal.class);
+    private static final String JOURNAL_FILE = "journal.ndjson";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final SweepJournal DISABLED = new SweepJournal();
+    private final Path directory;
+    private final FileChannel channel;
+    private final ObjectMapper mapper;
+    private final Map<String, List<Page>> completedPages = new HashMap<>();
+    private int nextSegment;
+
+    /**
+     * One completed page as recorded in the journal.
+     *
+     * @param location  the location key, see {@link #locationKey(Payload)}
+     * @param offset    the page's result offset
+     * @param merchants the number of merchants the page returned
+     * @param finished  whether this was the location's last page
+     * @param segment   the segment file holding the restaurants the page added, or null if it added none
+     */
+    public record Page(String location, int offset, int merchants, boolean finished, String segment) {
+    }
+
+    private SweepJournal() {
+        this.directory = null;
+        this.channel = null;
+        this.mapper = null;
+    }
+
+    private SweepJournal(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.mapper = FileUtil.mapper();
+        Path journal = directory.resolve(JOURNAL_FILE);
+        long validLength = Files.exists(journal) ? load(journal) : 0;
+        this.channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Drop a torn last line, so the next append starts on a line of its own
+        channel.truncate(validLength);
+    }
+
+    /**
+     * Opens the journal in a directory, loading the progress of an interrupted run if there is one.
+     *
+     * @param directory the journal directory
+     * @return the journal
+     * @throws IOException if the journal cannot be read or opened for appending
+     */
+    public static SweepJournal open(Path directory) throws IOException {
+        return new SweepJournal(directory);
+    }
+
+    /**
+     * Returns a journal that records nothing and has no progress, for runs that do not checkpoint.
+     *
+     * @return the disabled journal
+     */
+    public static SweepJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Identifies a location across runs by the fields that determine its results.
+     *
+     * @param payload the location's payload
+     * @return the key
+     */
+    public static String locationKey(Payload payload) {
+        return payload.getLatlng() + "|" + payload.getKeyword() + "|" + payload.getCountryCode();
+    }
+
+    /**
+     * Returns the pages of a location completed by an earlier run, in offset order.
+     *
+     * @param payload the location's payload
+     * @return the completed pages, empty if the location has none
+     */
+    public synchronized List<Page> completedPages(Payload payload) {
+        return List.copyOf(completedPages.getOrDefault(locationKey(payload), List.of()));
+    }
+
+    /**
+     * Records a completed page durably: its segment is written and forced to disk with its directory entry, then
+     * the journal line is appended and forced to disk.
+     *
+     * @param payload     the location's payload
+     * @param offset      the page's result offset
+     * @param merchants   the number of merchants the page returned
+     * @param finished    whether this was the location's last page
+     * @param restaurants the restaurants the page added
+     * @throws IOException if the segment or the journal line cannot be written
+     */
+    public void recordPage(Payload payload, int offset, int merchants, boolean finished, List<Restaurant> restaurants) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        String segment = null;
+        if (!restaurants.isEmpty()) {
+            segment = newSegmentName();
+            Path segmentFile = directory.resolve(segment);
+            ColumnarSnapshotWriter.write(restaurants, segmentFile.toString());
+            force(segmentFile);
+            force(directory); // Makes the new segment's name durable, not just its contents
+        }
+        Page page = new Page(locationKey(payload), offset, merchants, finished, segment);
+        byte[] line = (mapper.writeValueAsString(page) + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads the restaurants a journaled page added.
+     *
+     * @param page a page returned by {@link #completedPages(Payload)}
+     * @return the page's restaurants
+     * @throws IOException if the segment cannot be read
+     */
+    public List<Restaurant> readSegment(Page page) throws IOException {
+        if (page.segment() == null) {
+            return List.of();
+        }
+        try (ColumnarSnapshotReader reader = new ColumnarSnapshotReader(directory.resolve(page.segment()).toString())) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * Deletes the journal and its segments once a sweep has completed, so the next run starts from scratch.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    public synchronized void clear() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        channel.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        completedPages.clear();
+        logger.info("Sweep journal {} cleared", directory);
+    }
+
+    private static void force(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            file.force(true);
+        }
+    }
+
+    private synchronized String newSegmentName() {
+        return String.format("%08d%s", nextSegment++, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Loads the journaled pages and returns the length of the journal up to its last complete line.
+     */
+    private long load(Path journal) throws IOException {
+        byte[] content = Files.readAllBytes(journal);
+        int validLength = 0;
+        int pages = 0;
+        for (int start = 0, end; (end = indexOf(content, (byte) '\n', start)) >= 0; start = end + 1) {
+            validLength = end + 1;
+            String line = new String(content, start, end - start, StandardCharsets.UTF_8);
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                Page page = mapper.readValue(line, Page.class);
+                completedPages.computeIfAbsent(page.location(), location -> new ArrayList<>()).add(page);
+                pages++;
+            } catch (JsonProcessingException e) {
+                logger.warn("Ignoring unreadable journal line in {}", journal);
+            }
+        }
+        if (validLength < content.length) {
+            // Only the last line can be torn, by a crash while it was being appended
+            logger.warn("Dropping a torn line at the end of {}", journal);
+        }
+        completedPages.values().forEach(locationPages -> locationPages.sort(Comparator.comparingInt(Page::offset)));
+        // Segment names are handed out concurrently, so a crash can leave gaps; continue past the highest one
+        try (Stream<Path> files = Files.list(directory)) {
+            nextSegment = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .mapToInt(name -> Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())) + 1)
+                    .max()
+                    .orElse(0);
+        }
+        logger.info("Resuming sweep from {}: {} pages of {} locations already completed", journal, pages, completedPages.size());
+        return validLength;
+    }
+
+    private static int indexOf(byte[] content, byte value, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,234 @@
+package org.webscraper.utils;
+
+import org.webscraper.model.Restaurant;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads snapshots written by {@link ColumnarSnapshotWriter}.
+ * Only the header and column directory are read on open; every accessor reads and decodes just the block of the
+ * column it is asked for, so a pass over fees and delivery times never touches names, cuisines or image links.
+ */
+public class ColumnarSnapshotReader implements Closeable {
+    private final String filePath;
+    private final FileChannel channel;
+    private final int rowCount;
+    private final long[] offsets = new long[RestaurantColumn.values().length];
+    private final long[] lengths = new long[RestaurantColumn.values().length];
+
+    /**
+     * Opens a snapshot and reads its column directory.
+     *
+     * @param filePath the path of the snapshot file
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public ColumnarSnapshotReader(String filePath) throws IOException {
+        this.filePath = filePath;
+        this.channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(0, ColumnarSnapshotWriter.HEADER_BYTES);
+            if (header.getInt() != ColumnarSnapshotWriter.MAGIC) {
+                throw new IOException(filePath + " is not a columnar restaurant snapshot");
+            }
+            short version = header.getShort();
+            if (version != ColumnarSnapshotWriter.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + filePath);
+            }
+            this.rowCount = header.getInt();
+            int columnCount = header.getInt();
+            ByteBuffer directory = readFully(ColumnarSnapshotWriter.HEADER_BYTES,
+                    columnCount * ColumnarSnapshotWriter.DIRECTORY_ENTRY_BYTES);
+            for (int i = 0; i < columnCount; i++) {
+                RestaurantColumn column = RestaurantColumn.values()[directory.get()];
+                if (directory.get() != column.encoding().ordinal()) {
+                    throw new IOException("Unexpected encoding for column " + column + " in " + filePath);
+                }
+                offsets[column.ordinal()] = directory.getLong();
+                lengths[column.ordinal()] = directory.getLong();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Reads a DOUBLE column, or the values of an OPTIONAL_DOUBLE column with 0 where absent.
+     *
+     * @param column the column to read
+     * @return one value per row
+     * @throws IOException if the block cannot be read
+     */
+    public double[] readDoubles(RestaurantColumn column) throws IOException {
+        ByteBuffer block = readBlock(column, RestaurantColumn.Encoding.DOUBLE, RestaurantColumn.Encoding.OPTIONAL_DOUBLE);
+        if (column.encoding() == RestaurantColumn.Encoding.OPTIONAL_DOUBLE) {
+            skipBitmap(block);
+        }
+        double[] values = new double[rowCount];
+        block.asDoubleBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Reads an INT column.
+     *
+     * @param column the column to read
+     * @return one value per row
+     * @throws IOException if the block cannot be read
+     */
+    public int[] readInts(RestaurantColumn column) throws IOException {
+        ByteBuffer block = readBlock(column, RestaurantColumn.Encoding.INT);
+        int[] values = new int[rowCount];
+        block.asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Reads a BOOLEAN column, or the presence bitmap of an OPTIONAL_DOUBLE column.
+     *
+     * @param column the column to read
+     * @return a bitmap with the bit of each true or present row set
+     * @throws IOException if the block cannot be read
+     */
+    public BitSet readBitmap(RestaurantColumn column) throws IOException {
+        return readBitmap(readBlock(column, RestaurantColumn.Encoding.BOOLEAN, RestaurantColumn.Encoding.OPTIONAL_DOUBLE));
+    }
+
+    /**
+     * Reads a PLAIN, PREFIX or DICTIONARY column.
+     *
+     * @param column the column to read
+     * @return one value per row, null where an optional value is absent; dictionary values are shared instances
+     * @throws IOException if the block cannot be read
+     */
+    public String[] readStrings(RestaurantColumn column) throws IOException {
+        ByteBuffer block = readBlock(column, RestaurantColumn.Encoding.PLAIN, RestaurantColumn.Encoding.PREFIX,
+                RestaurantColumn.Encoding.DICTIONARY);
+        String[] values = new String[rowCount];
+        switch (column.encoding()) {
+            case PLAIN -> {
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = readString(block);
+                }
+            }
+            case PREFIX -> {
+                String previous = "";
+                for (int row = 0; row < rowCount; row++) {
+                    int shared = (int) VarInts.read(block);
+                    previous = previous.substring(0, shared) + readString(block);
+                    values[row] = previous;
+                }
+            }
+            default -> {
+                String[] dictionary = new String[(int) VarInts.read(block)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(block);
+                }
+                for (int row = 0; row < rowCount; row++) {
+                    int code = (int) VarInts.read(block);
+                    values[row] = code == 0 ? null : dictionary[code - 1];
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads every column and rebuilds the rows.
+     *
+     * @return the restaurants in stored order
+     * @throws IOException if a block cannot be read
+     */
+    public List<Restaurant> readAll() throws IOException {
+        String[] names = readStrings(RestaurantColumn.NAME);
+        String[] cuisines = readStrings(RestaurantColumn.CUISINE);
+        double[] ratings = readDoubles(RestaurantColumn.RATING);
+        int[] deliveryTimes = readInts(RestaurantColumn.ESTIMATED_DELIVERY_TIME);
+        double[] distances = readDoubles(RestaurantColumn.DISTANCE);
+        BitSet promoAvailable = readBitmap(RestaurantColumn.PROMO_AVAILABLE);
+        String[] promoDescriptions = readStrings(RestaurantColumn.PROMO_DESCRIPTION);
+        String[] imageLinks = readStrings(RestaurantColumn.IMAGE_LINK);
+        String[] ids = readStrings(RestaurantColumn.RESTAURANT_ID);
+        double[] latitudes = readDoubles(RestaurantColumn.LATITUDE);
+        double[] longitudes = readDoubles(RestaurantColumn.LONGITUDE);
+        BitSet feePresent = readBitmap(RestaurantColumn.ESTIMATED_DELIVERY_FEE);
+        double[] fees = readDoubles(RestaurantColumn.ESTIMATED_DELIVERY_FEE);
+        String[] closingSoonTexts = readStrings(RestaurantColumn.CLOSING_SOON_TEXT);
+
+        List<Restaurant> restaurants = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            restaurants.add(new Restaurant(
+                    names[row],
+                    cuisines[row],
+                    ratings[row],
+                    deliveryTimes[row],
+                    distances[row],
+                    promoAvailable.get(row),
+                    Optional.ofNullable(promoDescriptions[row]),
+                    imageLinks[row],
+                    ids[row],
+                    latitudes[row],
+                    longitudes[row],
+                    feePresent.get(row) ? Optional.of(fees[row]) : Optional.empty(),
+                    Optional.ofNullable(closingSoonTexts[row])
+            ));
+        }
+        return restaurants;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readBlock(RestaurantColumn column, RestaurantColumn.Encoding... accepted) throws IOException {
+        if (!List.of(accepted).contains(column.encoding())) {
+            throw new IllegalArgumentException("Column " + column + " is " + column.encoding() + ", not " + List.of(accepted));
+        }
+        return readFully(offsets[column.ordinal()], Math.toIntExact(lengths[column.ordinal()]));
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated snapshot " + filePath);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static BitSet readBitmap(ByteBuffer block) {
+        long[] words = new long[block.getInt()];
+        block.asLongBuffer().get(words);
+        block.position(block.position() + words.length * Long.BYTES);
+        return BitSet.valueOf(words);
+    }
+
+    private static void skipBitmap(ByteBuffer block) {
+        int words = block.getInt();
+        block.position(block.position() + words * Long.BYTES);
+    }
+
+    private static String readString(ByteBuffer block) {
+        int length = (int) VarInts.read(block);
+        String value = new String(block.array(), block.arrayOffset() + block.position(), length, StandardCharsets.UTF_8);
+        block.position(block.position() + length);
+        return value;
+    }
+}
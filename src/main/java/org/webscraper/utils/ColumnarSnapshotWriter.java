@@ -0,0 +1,228 @@
+package org.webscraper.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.webscraper.model.Restaurant;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Writes restaurants as a columnar binary snapshot that {@link ColumnarSnapshotReader} can read column by column.
+ * Rows are split into per-column buffers as they arrive; on close the file is laid out as
+ * <pre>
+ *   magic, version, rowCount, columnCount
+ *   columnCount x (column ordinal, encoding ordinal, offset, length)
+ *   column blocks
+ * </pre>
+ * with each block encoded as described by {@link RestaurantColumn.Encoding}.
+ */
+public class ColumnarSnapshotWriter implements Consumer<Restaurant>, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarSnapshotWriter.class);
+    static final int MAGIC = 0x52534E50; // "RSNP"
+    static final short VERSION = 1;
+    static final int DIRECTORY_ENTRY_BYTES = 1 + 1 + Long.BYTES + Long.BYTES;
+    static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Integer.BYTES + Integer.BYTES;
+    private final String filePath;
+    private final Map<RestaurantColumn, ByteArrayOutputStream> buffers = new EnumMap<>(RestaurantColumn.class);
+    private final Map<RestaurantColumn, DataOutputStream> columns = new EnumMap<>(RestaurantColumn.class);
+    private final Map<RestaurantColumn, StringDictionary> dictionaries = new EnumMap<>(RestaurantColumn.class);
+    private final Map<RestaurantColumn, BitSet> bitmaps = new EnumMap<>(RestaurantColumn.class);
+    private String previousImageLink = "";
+    private int rowCount;
+    private boolean closed;
+
+    /**
+     * Creates a writer that writes the snapshot to the given path when closed.
+     *
+     * @param filePath the path of the snapshot file
+     */
+    public ColumnarSnapshotWriter(String filePath) {
+        this.filePath = filePath;
+        for (RestaurantColumn column : RestaurantColumn.values()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            buffers.put(column, buffer);
+            columns.put(column, new DataOutputStream(buffer));
+            switch (column.encoding()) {
+                case DICTIONARY -> dictionaries.put(column, new StringDictionary());
+                case BOOLEAN, OPTIONAL_DOUBLE -> bitmaps.put(column, new BitSet());
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a complete snapshot of the given restaurants.
+     *
+     * @param restaurants the rows, in the order they are stored
+     * @param filePath    the path of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Collection<Restaurant> restaurants, String filePath) throws IOException {
+        try (ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(filePath)) {
+            for (Restaurant restaurant : restaurants) {
+                writer.write(restaurant);
+            }
+        }
+    }
+
+    /**
+     * Appends one row.
+     *
+     * @param restaurant the row to append
+     * @throws IOException if a column buffer cannot be written
+     */
+    public synchronized void write(Restaurant restaurant) throws IOException {
+        if (closed) {
+            throw new IOException("Snapshot " + filePath + " is already closed");
+        }
+        writeString(RestaurantColumn.NAME, restaurant.name());
+        writeDictionary(RestaurantColumn.CUISINE, Optional.of(restaurant.cuisine()));
+        columns.get(RestaurantColumn.RATING).writeDouble(restaurant.rating());
+        columns.get(RestaurantColumn.ESTIMATED_DELIVERY_TIME).writeInt(restaurant.estimatedDeliveryTimeMinutes());
+        columns.get(RestaurantColumn.DISTANCE).writeDouble(restaurant.distance());
+        bitmaps.get(RestaurantColumn.PROMO_AVAILABLE).set(rowCount, restaurant.isPromoAvailable());
+        writeDictionary(RestaurantColumn.PROMO_DESCRIPTION, restaurant.promoDescription());
+        writeImageLink(restaurant.imageLink());
+        writeString(RestaurantColumn.RESTAURANT_ID, restaurant.restaurantId());
+        columns.get(RestaurantColumn.LATITUDE).writeDouble(restaurant.latitude());
+        columns.get(RestaurantColumn.LONGITUDE).writeDouble(restaurant.longitude());
+        bitmaps.get(RestaurantColumn.ESTIMATED_DELIVERY_FEE).set(rowCount, restaurant.estimatedDeliveryFee().isPresent());
+        columns.get(RestaurantColumn.ESTIMATED_DELIVERY_FEE).writeDouble(restaurant.estimatedDeliveryFee().orElse(0.0));
+        writeDictionary(RestaurantColumn.CLOSING_SOON_TEXT, restaurant.closingSoonText());
+        rowCount++;
+    }
+
+    /**
+     * Appends one row, rethrowing I/O failures unchecked so the writer can be used as a pipeline callback.
+     *
+     * @param restaurant the row to append
+     */
+    @Override
+    public void accept(Restaurant restaurant) {
+        try {
+            write(restaurant);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing snapshot row to " + filePath, e);
+        }
+    }
+
+    /**
+     * Lays out the header, the column directory and every column block, and writes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        RestaurantColumn[] all = RestaurantColumn.values();
+        byte[][] blocks = new byte[all.length][];
+        for (RestaurantColumn column : all) {
+            blocks[column.ordinal()] = encodeBlock(column);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(rowCount);
+            out.writeInt(all.length);
+            long offset = HEADER_BYTES + (long) all.length * DIRECTORY_ENTRY_BYTES;
+            for (RestaurantColumn column : all) {
+                out.writeByte(column.ordinal());
+                out.writeByte(column.encoding().ordinal());
+                out.writeLong(offset);
+                out.writeLong(blocks[column.ordinal()].length);
+                offset += blocks[column.ordinal()].length;
+            }
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+        }
+        logger.info("{} restaurants written to columnar snapshot {}", rowCount, filePath);
+    }
+
+    private byte[] encodeBlock(RestaurantColumn column) throws IOException {
+        byte[] values = buffers.get(column).toByteArray();
+        return switch (column.encoding()) {
+            case BOOLEAN -> bitmapBytes(bitmaps.get(column));
+            case OPTIONAL_DOUBLE -> concat(bitmapBytes(bitmaps.get(column)), values);
+            case DICTIONARY -> concat(dictionaryBytes(dictionaries.get(column)), values);
+            default -> values;
+        };
+    }
+
+    private void writeString(RestaurantColumn column, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        DataOutputStream out = columns.get(column);
+        VarInts.write(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeDictionary(RestaurantColumn column, Optional<String> value) throws IOException {
+        int code = value.map(dictionaries.get(column)::encode).map(c -> c + 1).orElse(0);
+        VarInts.write(columns.get(column), code);
+    }
+
+    private void writeImageLink(String imageLink) throws IOException {
+        int shared = 0;
+        int max = Math.min(previousImageLink.length(), imageLink.length());
+        while (shared < max && previousImageLink.charAt(shared) == imageLink.charAt(shared)) {
+            shared++;
+        }
+        // Never split a surrogate pair between the shared prefix and the UTF-8 suffix
+        if (shared > 0 && Character.isHighSurrogate(imageLink.charAt(shared - 1))) {
+            shared--;
+        }
+        DataOutputStream out = columns.get(RestaurantColumn.IMAGE_LINK);
+        VarInts.write(out, shared);
+        byte[] suffix = imageLink.substring(shared).getBytes(StandardCharsets.UTF_8);
+        VarInts.write(out, suffix.length);
+        out.write(suffix);
+        previousImageLink = imageLink;
+    }
+
+    private static byte[] bitmapBytes(BitSet bitmap) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        long[] words = bitmap.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] dictionaryBytes(StringDictionary dictionary) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        VarInts.write(out, dictionary.size());
+        for (String value : dictionary.values()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            VarInts.write(out, bytes.length);
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = new byte[first.length + second.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
@@ -2,22 +2,10 @@ package org.webscraper.utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.webscraper.model.Restaurant;
 
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.Set;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.BufferedOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Set;
 
@@ -26,6 +14,18 @@ import java.util.Set;
  */
 public class FileUtil {
     private static final Logger logger = LoggerFactory.getLogger(FileUtil.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+    /**
+     * Returns the shared mapper used for every file format. ObjectMapper is thread-safe once configured,
+     * so one instance serves every writer instead of a new one per call.
+     *
+     * @return the shared ObjectMapper
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
 
     /**
      * Saves a set of objects to a GZIP compressed NDJSON file.
@@ -34,19 +34,27 @@ public class FileUtil {
      * @param filePath The path to the file where the data should be saved.
      */
     public static void saveDataAsGzipNdjson(Set<?> data, String filePath) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-
-        try (FileOutputStream fos = new FileOutputStream(filePath);
-             BufferedOutputStream bos = new BufferedOutputStream(fos);
-             GzipCompressorOutputStream gcos = new GzipCompressorOutputStream(bos)) {
+        try (NdjsonGzipWriter writer = new NdjsonGzipWriter(filePath)) {
             for (Object item : data) {
-                String json = mapper.writeValueAsString(item) + "\n";
-                gcos.write(json.getBytes());
+                writer.write(item);
             }
             logger.info("Data successfully written to {}", filePath);
         } catch (IOException e) {
             logger.error("Error saving data to file {}: {}", filePath, e.getMessage(), e);
         }
     }
+
+    /**
+     * Saves restaurants as a columnar binary snapshot, which analytic passes can read one column at a time.
+     *
+     * @param restaurants The restaurants to be saved.
+     * @param filePath The path to the file where the snapshot should be saved.
+     */
+    public static void saveDataAsColumnarSnapshot(Set<Restaurant> restaurants, String filePath) {
+        try {
+            ColumnarSnapshotWriter.write(restaurants, filePath);
+        } catch (IOException e) {
+            logger.error("Error saving snapshot to file {}: {}", filePath, e.getMessage(), e);
+        }
+    }
 }
@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.webscraper.client.Client;
 import org.webscraper.client.GeoCodeClient;
+import org.webscraper.client.RateLimiter;
 import org.webscraper.model.Location;
 
 import java.io.IOException;
@@ -18,7 +19,8 @@ import java.io.IOException;
  * However, it provides a scalable solution for future needs where only a location input is necessary to fetch relevant data.
  */
 public class GeoCodingUtil {
-    private static final Client client = new GeoCodeClient(new OkHttpClient());
+    // Nominatim's usage policy allows at most one request per second
+    private static final Client client = new GeoCodeClient(new OkHttpClient(), new RateLimiter(1, 1));
     private static final Logger logger = LoggerFactory.getLogger(GeoCodingUtil.class);
 
     /**
@@ -0,0 +1,80 @@
+package org.webscraper.utils;
+
+import java.util.Locale;
+
+/**
+ * Utility class for the small amount of spherical geometry the scraper needs.
+ * Distances use the haversine formula on a spherical Earth, which is accurate to well under 1% at city scale.
+ */
+public class GeoMath {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE_LATITUDE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Computes the great-circle distance between two points.
+     *
+     * @param lat1 latitude of the first point in degrees
+     * @param lng1 longitude of the first point in degrees
+     * @param lat2 latitude of the second point in degrees
+     * @param lng2 longitude of the second point in degrees
+     * @return the distance in kilometres
+     */
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Converts a north-south distance to degrees of latitude.
+     *
+     * @param km the distance in kilometres
+     * @return the equivalent span in degrees of latitude
+     */
+    public static double kmToLatitudeDegrees(double km) {
+        return km / KM_PER_DEGREE_LATITUDE;
+    }
+
+    /**
+     * Converts an east-west distance to degrees of longitude at a given latitude.
+     *
+     * @param km       the distance in kilometres
+     * @param latitude the latitude at which the distance is measured, in degrees
+     * @return the equivalent span in degrees of longitude
+     */
+    public static double kmToLongitudeDegrees(double km, double latitude) {
+        double cos = Math.max(Math.cos(Math.toRadians(latitude)), 1e-6);
+        return km / (KM_PER_DEGREE_LATITUDE * cos);
+    }
+
+    /**
+     * Parses a "lat,lng" string as used by {@code Payload.latlng}.
+     *
+     * @param latlng the comma-separated coordinate pair
+     * @return a two-element array of latitude and longitude
+     * @throws IllegalArgumentException if the string is not a coordinate pair
+     */
+    public static double[] parseLatLng(String latlng) {
+        String[] parts = latlng == null ? new String[0] : latlng.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected \"lat,lng\" but got: " + latlng);
+        }
+        return new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())};
+    }
+
+    /**
+     * Formats a coordinate pair as a "lat,lng" string with six decimal places (about 0.1 m).
+     *
+     * @param latitude  the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @return the formatted coordinate pair
+     */
+    public static String formatLatLng(double latitude, double longitude) {
+        return String.format(Locale.ROOT, "%.6f,%.6f", latitude, longitude);
+    }
+}
@@ -0,0 +1,134 @@
+package org.webscraper.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sidecar index of a multi-member gzip NDJSON file written by {@link ParallelGzipNdjsonWriter}.
+ * Each member is an independent gzip stream, so a reader can seek to one member and decompress only it.
+ * The index is itself NDJSON, one line per member, and maps record ranges and record keys to members.
+ */
+public class GzipMemberIndex {
+    public static final String INDEX_SUFFIX = ".idx";
+    private final List<Member> members;
+    private final Map<String, Member> membersByKey = new HashMap<>();
+
+    /**
+     * One gzip member of the data file.
+     *
+     * @param offset      the byte offset of the member in the data file
+     * @param length      the compressed length of the member in bytes
+     * @param firstRecord the zero-based number of the member's first record in the whole file
+     * @param records     the number of records in the member
+     * @param keys        the keys of the member's records, in order
+     */
+    public record Member(long offset, int length, long firstRecord, int records, List<String> keys) {
+    }
+
+    GzipMemberIndex(List<Member> members) {
+        this.members = List.copyOf(members);
+        for (Member member : this.members) {
+            for (String key : member.keys()) {
+                membersByKey.put(key, member);
+            }
+        }
+    }
+
+    /**
+     * Loads the index written next to a data file.
+     *
+     * @param dataFilePath the path of the .ndjson.gz file; the index is read from the same path plus {@value #INDEX_SUFFIX}
+     * @return the loaded index
+     * @throws IOException if the index cannot be read
+     */
+    public static GzipMemberIndex load(String dataFilePath) throws IOException {
+        ObjectMapper mapper = FileUtil.mapper();
+        List<Member> members = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(dataFilePath + INDEX_SUFFIX), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    members.add(mapper.readValue(line, Member.class));
+                }
+            }
+        }
+        return new GzipMemberIndex(members);
+    }
+
+    public List<Member> members() {
+        return Collections.unmodifiableList(members);
+    }
+
+    /**
+     * Finds the member containing the record with the given key.
+     *
+     * @param key the record key, such as a restaurantId
+     * @return the member, or empty if no record has that key
+     */
+    public Optional<Member> findByKey(String key) {
+        return Optional.ofNullable(membersByKey.get(key));
+    }
+
+    /**
+     * Finds the member containing a record by its position in the file.
+     *
+     * @param recordNumber the zero-based record number
+     * @return the member, or empty if the number is out of range
+     */
+    public Optional<Member> findByRecord(long recordNumber) {
+        int low = 0;
+        int high = members.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Member member = members.get(mid);
+            if (recordNumber < member.firstRecord()) {
+                high = mid - 1;
+            } else if (recordNumber >= member.firstRecord() + member.records()) {
+                low = mid + 1;
+            } else {
+                return Optional.of(member);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Decompresses a single member without touching the rest of the file.
+     *
+     * @param dataFilePath the path of the .ndjson.gz file
+     * @param member       the member to read
+     * @return the member's NDJSON lines
+     * @throws IOException if the member cannot be read or decompressed
+     */
+    public static List<String> readMember(String dataFilePath, Member member) throws IOException {
+        byte[] compressed = new byte[member.length()];
+        try (RandomAccessFile file = new RandomAccessFile(dataFilePath, "r")) {
+            file.seek(member.offset());
+            file.readFully(compressed);
+        }
+        List<String> lines = new ArrayList<>(member.records());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,81 @@
+package org.webscraper.utils;
+
+/**
+ * Fast non-cryptographic 64-bit hashing for sketches and change detection.
+ */
+public final class Hashing {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+    }
+
+    /**
+     * Hashes a string with 64-bit FNV-1a over its UTF-16 units followed by the MurmurHash3 finalizer,
+     * so every output bit depends on every input character.
+     *
+     * @param value the string to hash
+     * @return the 64-bit hash
+     */
+    public static long hash(String value) {
+        return mix(update(FNV_OFFSET_BASIS, value));
+    }
+
+    /**
+     * Starts an incremental FNV-1a hash over several values.
+     *
+     * @return the initial state
+     */
+    public static long start() {
+        return FNV_OFFSET_BASIS;
+    }
+
+    /**
+     * Feeds a string into an incremental hash. A length prefix keeps ("ab", "c") and ("a", "bc") apart.
+     *
+     * @param state the current state
+     * @param value the string, where null hashes differently from every string
+     * @return the new state
+     */
+    public static long update(long state, String value) {
+        if (value == null) {
+            return update(state, -1L);
+        }
+        state = update(state, (long) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            state ^= value.charAt(i);
+            state *= FNV_PRIME;
+        }
+        return state;
+    }
+
+    /**
+     * Feeds a 64-bit value into an incremental hash, one byte at a time.
+     *
+     * @param state the current state
+     * @param value the value
+     * @return the new state
+     */
+    public static long update(long state, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            state ^= (value >>> shift) & 0xFF;
+            state *= FNV_PRIME;
+        }
+        return state;
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     *
+     * @param state the value to mix
+     * @return the mixed value
+     */
+    public static long mix(long state) {
+        state ^= state >>> 33;
+        state *= 0xff51afd7ed558ccdL;
+        state ^= state >>> 33;
+        state *= 0xc4ceb9fe1a85ec53L;
+        state ^= state >>> 33;
+        return state;
+    }
+}
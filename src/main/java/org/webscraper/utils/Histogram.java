@@ -0,0 +1,73 @@
+package org.webscraper.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-width histogram over a closed range, with values outside the range counted in the first and last bins.
+ * Histograms with the same layout merge by adding their counts. Not thread-safe.
+ */
+public class Histogram {
+    private final double lowerBound;
+    private final double upperBound;
+    private final long[] counts;
+
+    /**
+     * Constructs an empty histogram.
+     *
+     * @param lowerBound the lower edge of the first bin
+     * @param upperBound the upper edge of the last bin
+     * @param bins       the number of equal-width bins
+     * @throws IllegalArgumentException if the range is empty or there are no bins
+     */
+    public Histogram(double lowerBound, double upperBound, int bins) {
+        if (!(upperBound > lowerBound) || bins <= 0) {
+            throw new IllegalArgumentException("Histogram needs a non-empty range and at least one bin");
+        }
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.counts = new long[bins];
+    }
+
+    /**
+     * Counts one observation.
+     *
+     * @param value the observed value; NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        int bin = (int) ((value - lowerBound) / (upperBound - lowerBound) * counts.length);
+        counts[Math.max(0, Math.min(counts.length - 1, bin))]++;
+    }
+
+    /**
+     * Adds the counts of another histogram with the same layout.
+     *
+     * @param other the histogram to merge
+     * @return this histogram
+     * @throws IllegalArgumentException if the layouts differ
+     */
+    public Histogram merge(Histogram other) {
+        if (other.lowerBound != lowerBound || other.upperBound != upperBound || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bins");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        return this;
+    }
+
+    public double binLowerEdge(int bin) {
+        return lowerBound + (upperBound - lowerBound) * bin / counts.length;
+    }
+
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + lowerBound + ", " + upperBound + "] " + Arrays.toString(counts);
+    }
+}
@@ -0,0 +1,74 @@
+package org.webscraper.utils;
+
+/**
+ * HyperLogLog distinct-count sketch with 2^14 one-byte registers, about 16 KiB per sketch and roughly 0.8%
+ * standard error. Sketches with the same precision merge by taking the register-wise maximum. Not thread-safe.
+ */
+public class HyperLogLog {
+    private static final int PRECISION = 14;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private final byte[] registers = new byte[REGISTERS];
+
+    /**
+     * Adds a string to the set being counted.
+     *
+     * @param value the value; null is ignored
+     */
+    public void add(String value) {
+        if (value != null) {
+            addHash(Hashing.hash(value));
+        }
+    }
+
+    /**
+     * Adds an already hashed value. The hash must be well mixed across all 64 bits.
+     *
+     * @param hash the 64-bit hash of the value
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // The sentinel bit caps the run of leading zeros at 64 - PRECISION
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Folds another sketch into this one.
+     *
+     * @param other the sketch to merge
+     * @return this sketch
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Estimates the number of distinct values added, using linear counting while many registers are still empty.
+     *
+     * @return the estimated cardinality
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
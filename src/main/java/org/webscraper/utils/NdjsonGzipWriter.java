@@ -0,0 +1,114 @@
+package org.webscraper.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Long-lived writer that appends records to a GZIP compressed NDJSON file as they are produced.
+ * Records are serialized by a single reusable JsonGenerator straight into the compressed stream, and the
+ * stream is sync-flushed every {@code flushEvery} records so the file is readable while a scrape is running.
+ * Writes are synchronized, so the writer can be fed directly from concurrent page decodes.
+ */
+public class NdjsonGzipWriter implements Consumer<Object>, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonGzipWriter.class);
+    private static final int DEFAULT_FLUSH_EVERY = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final String filePath;
+    private final GZIPOutputStream gzipStream;
+    private final JsonGenerator generator;
+    private final int flushEvery;
+    private long recordCount;
+
+    /**
+     * Opens a writer that flushes every {@value #DEFAULT_FLUSH_EVERY} records.
+     *
+     * @param filePath the path of the file to create or overwrite
+     * @throws IOException if the file cannot be opened
+     */
+    public NdjsonGzipWriter(String filePath) throws IOException {
+        this(filePath, FileUtil.mapper(), DEFAULT_FLUSH_EVERY);
+    }
+
+    /**
+     * Opens a writer.
+     *
+     * @param filePath   the path of the file to create or overwrite
+     * @param mapper     the mapper whose configuration is used to serialize records
+     * @param flushEvery the number of records between sync flushes of the compressed stream
+     * @throws IOException if the file cannot be opened
+     */
+    public NdjsonGzipWriter(String filePath, ObjectMapper mapper, int flushEvery) throws IOException {
+        this(filePath, new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE), mapper, flushEvery);
+    }
+
+    private NdjsonGzipWriter(String filePath, OutputStream out, ObjectMapper mapper, int flushEvery) throws IOException {
+        this.filePath = filePath;
+        // syncFlush lets flush() emit everything compressed so far instead of holding it in the deflater
+        this.gzipStream = new GZIPOutputStream(out, BUFFER_SIZE, true);
+        this.generator = mapper.getFactory().createGenerator(gzipStream);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Lines are delimited by '\n' alone, not the default space Jackson puts between root values
+        this.generator.setRootValueSeparator(null);
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * Appends one record as a single NDJSON line.
+     *
+     * @param record the record to serialize
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void write(Object record) throws IOException {
+        generator.writeObject(record);
+        generator.writeRaw('\n');
+        if (++recordCount % flushEvery == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends one record, rethrowing I/O failures unchecked so the writer can be used as a pipeline callback.
+     *
+     * @param record the record to serialize
+     */
+    @Override
+    public void accept(Object record) {
+        try {
+            write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing record to " + filePath, e);
+        }
+    }
+
+    /**
+     * Pushes every record written so far through the compressor to the file.
+     *
+     * @throws IOException if the data cannot be flushed
+     */
+    public synchronized void flush() throws IOException {
+        generator.flush();
+        gzipStream.flush();
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        generator.close();
+        gzipStream.close();
+        logger.info("{} records written to {}", recordCount, filePath);
+    }
+}
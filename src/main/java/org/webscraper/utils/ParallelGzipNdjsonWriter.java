@@ -0,0 +1,210 @@
+package org.webscraper.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP NDJSON writer that compresses on several cores, in the style of pigz and BGZF.
+ * Records are serialized into fixed-size blocks, every block is compressed as an independent gzip member on a
+ * worker thread, and members are appended to the file in order. Concatenated members form a valid .ndjson.gz
+ * that gzip and GZIPInputStream read as one stream. A {@link GzipMemberIndex} sidecar records where every member
+ * starts and which records it holds, so readers can decompress a subset of the file. Index lines are written as
+ * their members are, so memory does not grow with the number of records. A writer that receives no records still
+ * writes one empty member, since a zero-byte file is not valid gzip.
+ *
+ * @param <T> the record type
+ */
+public class ParallelGzipNdjsonWriter<T> implements Consumer<T>, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelGzipNdjsonWriter.class);
+    private static final int DEFAULT_BLOCK_BYTES = 1024 * 1024;
+    private final String filePath;
+    private final OutputStream out;
+    private final ObjectMapper mapper;
+    private final Function<? super T, String> keyExtractor;
+    private final int blockBytes;
+    private final int maxPendingBlocks;
+    private final ExecutorService compressors;
+    private final JsonGenerator indexGenerator;
+    private final Deque<PendingMember> pending = new ArrayDeque<>();
+    private ByteArrayOutputStream block;
+    private JsonGenerator generator;
+    private List<String> blockKeys = new ArrayList<>();
+    private long recordCount;
+    private long blockFirstRecord;
+    private long fileOffset;
+    private int memberCount;
+
+    /**
+     * Opens a writer with 1 MiB blocks.
+     *
+     * @param filePath     the path of the .ndjson.gz file to create; the index is written to the same path plus ".idx"
+     * @param keyExtractor extracts the key indexed for each record, such as the restaurantId
+     * @param parallelism  the number of compression threads
+     * @throws IOException if the file cannot be opened
+     */
+    public ParallelGzipNdjsonWriter(String filePath, Function<? super T, String> keyExtractor, int parallelism) throws IOException {
+        this(filePath, FileUtil.mapper(), keyExtractor, parallelism, DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * Opens a writer.
+     *
+     * @param filePath     the path of the .ndjson.gz file to create
+     * @param mapper       the mapper whose configuration is used to serialize records
+     * @param keyExtractor extracts the key indexed for each record
+     * @param parallelism  the number of compression threads
+     * @param blockBytes   the uncompressed size at which a block is closed and compressed
+     * @throws IOException if the file cannot be opened
+     */
+    public ParallelGzipNdjsonWriter(String filePath, ObjectMapper mapper, Function<? super T, String> keyExtractor,
+                                    int parallelism, int blockBytes) throws IOException {
+        this.filePath = filePath;
+        this.out = new BufferedOutputStream(new FileOutputStream(filePath), blockBytes);
+        this.mapper = mapper;
+        this.keyExtractor = keyExtractor;
+        this.blockBytes = blockBytes;
+        this.maxPendingBlocks = parallelism * 2;
+        this.indexGenerator = mapper.getFactory().createGenerator(
+                new BufferedOutputStream(new FileOutputStream(filePath + GzipMemberIndex.INDEX_SUFFIX)));
+        this.indexGenerator.setRootValueSeparator(null);
+        this.compressors = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startBlock();
+    }
+
+    /**
+     * Appends one record as a single NDJSON line.
+     *
+     * @param record the record to serialize
+     * @throws IOException if the record cannot be serialized or a finished member cannot be written
+     */
+    public synchronized void write(T record) throws IOException {
+        generator.writeObject(record);
+        generator.writeRaw('\n');
+        blockKeys.add(keyExtractor.apply(record));
+        recordCount++;
+        generator.flush();
+        if (block.size() >= blockBytes) {
+            submitBlock();
+            writeCompletedMembers(pending.size() >= maxPendingBlocks);
+        }
+    }
+
+    /**
+     * Appends one record, rethrowing I/O failures unchecked so the writer can be used as a pipeline callback.
+     *
+     * @param record the record to serialize
+     */
+    @Override
+    public void accept(T record) {
+        try {
+            write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing record to " + filePath, e);
+        }
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Compresses the last partial block, writes every remaining member, closes the index and releases the workers.
+     *
+     * @throws IOException if the data or the index cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            // Both files are closed even if a block fails to compress, leaving the index in step with the members written
+            try (JsonGenerator index = indexGenerator; OutputStream data = out) {
+                // An empty run still gets one member, so the file decompresses to nothing instead of failing
+                if (!blockKeys.isEmpty() || memberCount + pending.size() == 0) {
+                    submitBlock();
+                }
+                while (!pending.isEmpty()) {
+                    writeCompletedMembers(true);
+                }
+            }
+            logger.info("{} records written to {} in {} gzip members", recordCount, filePath, memberCount);
+        } finally {
+            compressors.shutdownNow();
+        }
+    }
+
+    private void startBlock() throws IOException {
+        block = new ByteArrayOutputStream(blockBytes + blockBytes / 8);
+        generator = mapper.getFactory().createGenerator(block);
+        generator.setRootValueSeparator(null);
+        blockKeys = new ArrayList<>();
+        blockFirstRecord = recordCount;
+    }
+
+    private void submitBlock() throws IOException {
+        generator.close();
+        byte[] raw = block.toByteArray();
+        Future<byte[]> compressed = compressors.submit(() -> compress(raw));
+        pending.addLast(new PendingMember(compressed, blockFirstRecord, blockKeys));
+        startBlock();
+    }
+
+    /**
+     * Writes finished members in file order. When {@code waitForHead} is set, blocks until the oldest member is
+     * done, which bounds the number of blocks held in memory when compression falls behind.
+     */
+    private void writeCompletedMembers(boolean waitForHead) throws IOException {
+        while (!pending.isEmpty() && (waitForHead || pending.peekFirst().compressed().isDone())) {
+            PendingMember member = pending.removeFirst();
+            byte[] bytes;
+            try {
+                bytes = member.compressed().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compressing " + filePath, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error compressing block for " + filePath, e.getCause());
+            }
+            out.write(bytes);
+            indexGenerator.writeObject(new GzipMemberIndex.Member(fileOffset, bytes.length, member.firstRecord(), member.keys().size(), member.keys()));
+            indexGenerator.writeRaw('\n');
+            memberCount++;
+            fileOffset += bytes.length;
+            waitForHead = false;
+        }
+    }
+
+    private static byte[] compress(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 64 * 1024)) {
+            gzip.write(raw);
+        }
+        return compressed.toByteArray();
+    }
+
+    private record PendingMember(Future<byte[]> compressed, long firstRecord, List<String> keys) {
+    }
+}
@@ -0,0 +1,45 @@
+package org.webscraper.utils;
+
+/**
+ * The columns of a {@link org.webscraper.model.Restaurant} in a columnar snapshot, each with its on-disk encoding.
+ */
+public enum RestaurantColumn {
+    NAME(Encoding.PLAIN),
+    CUISINE(Encoding.DICTIONARY),
+    RATING(Encoding.DOUBLE),
+    ESTIMATED_DELIVERY_TIME(Encoding.INT),
+    DISTANCE(Encoding.DOUBLE),
+    PROMO_AVAILABLE(Encoding.BOOLEAN),
+    PROMO_DESCRIPTION(Encoding.DICTIONARY),
+    IMAGE_LINK(Encoding.PREFIX),
+    RESTAURANT_ID(Encoding.PLAIN),
+    LATITUDE(Encoding.DOUBLE),
+    LONGITUDE(Encoding.DOUBLE),
+    ESTIMATED_DELIVERY_FEE(Encoding.OPTIONAL_DOUBLE),
+    CLOSING_SOON_TEXT(Encoding.DICTIONARY);
+
+    /**
+     * How a column's values are laid out.
+     * <ul>
+     *     <li>DOUBLE, INT: one fixed-width value per row</li>
+     *     <li>OPTIONAL_DOUBLE: a presence bitmap followed by one double per row, 0 where absent</li>
+     *     <li>BOOLEAN: a bitmap</li>
+     *     <li>DICTIONARY: the distinct strings, then one varint code per row, 0 for an absent value</li>
+     *     <li>PLAIN: one length-prefixed UTF-8 string per row</li>
+     *     <li>PREFIX: front coding, the length shared with the previous row followed by the remaining suffix</li>
+     * </ul>
+     */
+    public enum Encoding {
+        DOUBLE, INT, OPTIONAL_DOUBLE, BOOLEAN, DICTIONARY, PLAIN, PREFIX
+    }
+
+    private final Encoding encoding;
+
+    RestaurantColumn(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+}
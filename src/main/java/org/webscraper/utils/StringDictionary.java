@@ -0,0 +1,57 @@
+package org.webscraper.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense integer codes to distinct strings in first-seen order, so repeated values such as cuisine JSON
+ * are stored once and referenced by code.
+ * Not thread-safe; callers that share a dictionary synchronize around it.
+ */
+public class StringDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Returns the code of a string, assigning the next code if it has not been seen.
+     *
+     * @param value the string to encode
+     * @return the string's code, starting at 0
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the string for a code.
+     *
+     * @param code a code returned by {@link #encode(String)}
+     * @return the string
+     * @throws IndexOutOfBoundsException if the code was never assigned
+     */
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Returns the distinct strings indexed by code.
+     *
+     * @return an unmodifiable view of the values
+     */
+    public List<String> values() {
+        return Collections.unmodifiableList(values);
+    }
+}
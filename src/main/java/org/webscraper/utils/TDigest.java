@@ -0,0 +1,185 @@
+package org.webscraper.utils;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest for streaming quantile estimates in bounded memory.
+ * Values are buffered and periodically folded into at most roughly {@code compression} centroids, sized so that
+ * centroids near the tails stay small and tail quantiles stay accurate. Digests built on different threads or
+ * locations can be merged. Not thread-safe.
+ */
+public class TDigest {
+    private static final double DEFAULT_COMPRESSION = 100;
+    private final double compression;
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructs an empty digest.
+     *
+     * @param compression the accuracy parameter; higher values keep more centroids
+     */
+    public TDigest(double compression) {
+        this.compression = compression;
+        int bufferSize = (int) (5 * compression);
+        this.bufferMeans = new double[bufferSize];
+        this.bufferWeights = new double[bufferSize];
+    }
+
+    /**
+     * Adds one observation.
+     *
+     * @param value the observed value; NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        add(value, 1);
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Folds another digest into this one.
+     *
+     * @param other the digest to merge
+     * @return this digest
+     */
+    public TDigest merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.means.length; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * Estimates a quantile by interpolating between centroid centres.
+     *
+     * @param q the quantile, between 0 and 1
+     * @return the estimated value, or NaN if nothing was added
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        compress();
+        int n = means.length;
+        if (n == 1) {
+            return means[0];
+        }
+        double index = q * count;
+        double cumulative = 0;
+        for (int i = 0; i < n; i++) {
+            double center = cumulative + weights[i] / 2;
+            if (index < center) {
+                if (i == 0) {
+                    return min + (means[0] - min) * index / center;
+                }
+                double previousCenter = cumulative - weights[i - 1] / 2;
+                return means[i - 1] + (means[i] - means[i - 1]) * (index - previousCenter) / (center - previousCenter);
+            }
+            cumulative += weights[i];
+        }
+        double lastCenter = count - weights[n - 1] / 2;
+        return means[n - 1] + (max - means[n - 1]) * (index - lastCenter) / (count - lastCenter);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    private void add(double mean, double weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+    }
+
+    /**
+     * Sorts the centroids together with the buffered points and merges neighbours while the merged weight stays
+     * under the size limit 4·N·q·(1−q)/compression for its position q in the distribution.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int n = means.length + buffered;
+        double[] allMeans = Arrays.copyOf(means, n);
+        double[] allWeights = Arrays.copyOf(weights, n);
+        System.arraycopy(bufferMeans, 0, allMeans, means.length, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, weights.length, buffered);
+        buffered = 0;
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        double total = 0;
+        for (double weight : allWeights) {
+            total += weight;
+        }
+        double[] mergedMeans = new double[n];
+        double[] mergedWeights = new double[n];
+        int merged = 0;
+        double currentMean = allMeans[order[0]];
+        double currentWeight = allWeights[order[0]];
+        double weightSoFar = 0;
+        for (int i = 1; i < n; i++) {
+            double mean = allMeans[order[i]];
+            double weight = allWeights[order[i]];
+            double proposed = currentWeight + weight;
+            double q = (weightSoFar + proposed / 2) / total;
+            double limit = 4 * total * q * (1 - q) / compression;
+            if (proposed <= Math.max(1, limit)) {
+                currentMean += (mean - currentMean) * weight / proposed;
+                currentWeight = proposed;
+            } else {
+                mergedMeans[merged] = currentMean;
+                mergedWeights[merged] = currentWeight;
+                merged++;
+                weightSoFar += currentWeight;
+                currentMean = mean;
+                currentWeight = weight;
+            }
+        }
+        mergedMeans[merged] = currentMean;
+        mergedWeights[merged] = currentWeight;
+        merged++;
+        means = Arrays.copyOf(mergedMeans, merged);
+        weights = Arrays.copyOf(mergedWeights, merged);
+    }
+}
@@ -0,0 +1,55 @@
+package org.webscraper.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 variable-length integers and zigzag encoding for the binary file formats.
+ * Small non-negative values take one byte; zigzag maps small negative deltas to small non-negative values first.
+ */
+public final class VarInts {
+    private VarInts() {
+    }
+
+    /**
+     * Writes a non-negative value in 7-bit groups, least significant first.
+     *
+     * @param out   the destination
+     * @param value the value, treated as unsigned
+     * @throws IOException if the destination cannot be written
+     */
+    public static void write(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a value written by {@link #write(DataOutput, long)}.
+     *
+     * @param in the buffer positioned at the value
+     * @return the decoded value
+     */
+    public static long read(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}